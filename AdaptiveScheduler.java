@@ -0,0 +1,242 @@
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class AdaptiveScheduler {
+    // What a finished task tells us about its destination
+    public enum Signal { NEUTRAL, SUCCESS, BACKOFF }
+    
+    public interface Task {
+        Signal run();
+    }
+    
+    // A throttled destination still gets a request every couple of seconds
+    private static final double MIN_RATE = 0.5;
+    // Requests per second won back for every success after a backoff
+    private static final double RATE_STEP = 0.5;
+    
+    private final int globalLimit;
+    private final int initialLimit;
+    private final int maxLimit;
+    private final double maxRate;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    
+    private final Map<String, Destination> destinations = new HashMap<>();
+    // Destinations with queued tasks, visited in turn so one busy address cannot starve the rest
+    private final Set<Destination> waiting = new LinkedHashSet<>();
+    private int inFlight = 0;
+    private int pending = 0;
+    private long backoffs = 0;
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt = Long.MAX_VALUE;
+    
+    public AdaptiveScheduler(int globalLimit, int initialLimit, int maxLimit, double maxRate) {
+        this.globalLimit = globalLimit;
+        this.initialLimit = Math.min(initialLimit, maxLimit);
+        this.maxLimit = maxLimit;
+        this.maxRate = maxRate;
+        this.workers = Executors.newFixedThreadPool(globalLimit, daemonThreads("adaptive-probe"));
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("adaptive-timer"));
+    }
+    
+    // Tasks for the same destination (usually an IP address) share its limits
+    public synchronized void submit(String destination, Task task) {
+        Destination target = destinations.computeIfAbsent(destination, Destination::new);
+        target.queue.add(task);
+        pending++;
+        waiting.add(target);
+        dispatch();
+    }
+    
+    public synchronized void awaitIdle() throws InterruptedException {
+        while (pending > 0 || inFlight > 0) {
+            wait();
+        }
+    }
+    
+    public void close() {
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+    
+    // Starts every task the limits allow right now; called with the lock held
+    private void dispatch() {
+        long now = System.nanoTime();
+        long nextToken = Long.MAX_VALUE;
+        boolean progress = true;
+        
+        while (progress && inFlight < globalLimit) {
+            progress = false;
+            Iterator<Destination> iterator = waiting.iterator();
+            while (iterator.hasNext() && inFlight < globalLimit) {
+                Destination destination = iterator.next();
+                if (destination.inFlight >= (int) destination.limit) {
+                    // Woken up again when one of its requests completes
+                    continue;
+                }
+                destination.refill(now);
+                if (destination.tokens < 1) {
+                    nextToken = Math.min(nextToken, destination.nanosUntilToken());
+                    continue;
+                }
+                
+                Task task = destination.queue.poll();
+                if (destination.queue.isEmpty()) {
+                    iterator.remove();
+                }
+                destination.tokens--;
+                destination.inFlight++;
+                inFlight++;
+                pending--;
+                long ticket = destination.started++;
+                workers.execute(() -> complete(destination, ticket, runTask(task)));
+                progress = true;
+            }
+        }
+        
+        if (nextToken != Long.MAX_VALUE) {
+            scheduleWakeup(now + nextToken);
+        }
+    }
+    
+    private void scheduleWakeup(long at) {
+        if (wakeup != null && !wakeup.isDone() && wakeupAt <= at) {
+            return;
+        }
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+        wakeupAt = at;
+        wakeup = timer.schedule(() -> {
+            synchronized (this) {
+                wakeupAt = Long.MAX_VALUE;
+                dispatch();
+            }
+        }, Math.max(0, at - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    
+    private Signal runTask(Task task) {
+        try {
+            return task.run();
+        } catch (RuntimeException e) {
+            System.err.println("Error in scheduled task: " + e.getMessage());
+            return Signal.NEUTRAL;
+        }
+    }
+    
+    // Additive increase on success, multiplicative decrease on a backoff signal. Requests that
+    // were already running when the limit was cut do not cut it again for the same congestion.
+    private synchronized void complete(Destination destination, long ticket, Signal signal) {
+        destination.inFlight--;
+        inFlight--;
+        
+        if (signal == Signal.SUCCESS) {
+            destination.limit = Math.min(maxLimit, destination.limit + 1 / destination.limit);
+            destination.rate = Math.min(maxRate, destination.rate + RATE_STEP);
+        } else if (signal == Signal.BACKOFF && ticket >= destination.cutAt) {
+            destination.limit = Math.max(1, destination.limit / 2);
+            destination.rate = Math.max(MIN_RATE, destination.rate / 2);
+            destination.tokens = Math.min(destination.tokens, 0);
+            destination.cutAt = destination.started;
+            destination.backoffs++;
+            backoffs++;
+        }
+        
+        dispatch();
+        notifyAll();
+    }
+    
+    // 429 and 503 are how servers and WAFs say slow down; other statuses mean the request got through
+    public static Signal classify(int statusCode) {
+        return statusCode == 429 || statusCode == 503 ? Signal.BACKOFF : Signal.SUCCESS;
+    }
+    
+    // Read timeouts and resets are what an overloaded or rate-limiting host looks like from here.
+    // A refused port, a filtered port (connect timeout) or an unknown name says nothing about load.
+    public static Signal classify(Exception e) {
+        if (e instanceof SocketTimeoutException) {
+            String message = String.valueOf(e.getMessage()).toLowerCase(Locale.ROOT);
+            return message.contains("connect") ? Signal.NEUTRAL : Signal.BACKOFF;
+        }
+        if (e instanceof SocketException && !(e instanceof ConnectException)) {
+            String message = String.valueOf(e.getMessage()).toLowerCase(Locale.ROOT);
+            if (message.contains("reset") || message.contains("broken pipe")) {
+                return Signal.BACKOFF;
+            }
+        }
+        return Signal.NEUTRAL;
+    }
+    
+    // BACKOFF wins over SUCCESS, which wins over NEUTRAL, so keep the declaration order
+    public static Signal worst(Collection<Signal> signals) {
+        Signal worst = Signal.NEUTRAL;
+        for (Signal signal : signals) {
+            if (signal.ordinal() > worst.ordinal()) {
+                worst = signal;
+            }
+        }
+        return worst;
+    }
+    
+    public synchronized long getBackoffCount() {
+        return backoffs;
+    }
+    
+    public synchronized int getDestinationCount() {
+        return destinations.size();
+    }
+    
+    // The destinations that backed off most, with the limits they ended up at
+    public synchronized List<String> describeThrottled(int limit) {
+        List<Destination> throttled = new ArrayList<>();
+        for (Destination destination : destinations.values()) {
+            if (destination.backoffs > 0) {
+                throttled.add(destination);
+            }
+        }
+        throttled.sort((a, b) -> Long.compare(b.backoffs, a.backoffs));
+        
+        List<String> lines = new ArrayList<>();
+        for (Destination destination : throttled.subList(0, Math.min(limit, throttled.size()))) {
+            lines.add(String.format("%s: %d backoffs, %d concurrent, %.1f req/s",
+                                  destination.key, destination.backoffs, (int) destination.limit, destination.rate));
+        }
+        return lines;
+    }
+    
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private class Destination {
+        final String key;
+        final Queue<Task> queue = new ArrayDeque<>();
+        double limit = initialLimit;
+        double rate = maxRate;
+        // The bucket holds at most one token per concurrent slot, so bursts stay within the limit
+        double tokens = initialLimit;
+        long refilledAt = System.nanoTime();
+        int inFlight = 0;
+        long started = 0;
+        long cutAt = 0;
+        long backoffs = 0;
+        
+        Destination(String key) {
+            this.key = key;
+        }
+        
+        void refill(long now) {
+            tokens = Math.min(Math.max(1, limit), tokens + (now - refilledAt) * rate / 1_000_000_000.0);
+            refilledAt = now;
+        }
+        
+        long nanosUntilToken() {
+            return (long) Math.ceil((1 - tokens) / rate * 1_000_000_000.0);
+        }
+    }
+}
\ No newline at end of file
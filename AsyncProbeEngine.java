@@ -0,0 +1,222 @@
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.*;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+public class AsyncProbeEngine {
+    static {
+        // Probed hosts are rarely contacted twice, so do not keep their connections around
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", "5");
+        }
+    }
+    
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final ExecutorService warmup;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Duration requestTimeout;
+    private boolean raceSchemes = false;
+    private Consumer<Certificate[]> certificateListener;
+    private DnsResolver resolver;
+    private Map<String, DnsResult> knownResults = Collections.emptyMap();
+    
+    public AsyncProbeEngine(int maxInFlight, int ioThreads, int timeoutMillis) {
+        this(maxInFlight, ioThreads, 32, timeoutMillis);
+    }
+    
+    public AsyncProbeEngine(int maxInFlight, int ioThreads, int warmupThreads, int timeoutMillis) {
+        this.executor = Executors.newFixedThreadPool(ioThreads);
+        this.warmup = Executors.newFixedThreadPool(warmupThreads);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.requestTimeout = Duration.ofMillis(timeoutMillis);
+        this.client = HttpClient.newBuilder()
+            .executor(executor)
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(requestTimeout)
+            .sslContext(SanHarvester.reportingContext(this::reportCertificates))
+            .build();
+    }
+    
+    public Map<String, ProbeResult> checkAll(Collection<String> subdomains) {
+        Map<String, ProbeResult> liveSubdomains = new ConcurrentHashMap<>();
+        
+        for (String subdomain : subdomains) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            
+            probe(subdomain).whenComplete((result, error) -> {
+                if (result != null && result.isLive()) {
+                    liveSubdomains.put(subdomain, result);
+                    System.out.printf("Live: %s\n", subdomain);
+                }
+                // Released last, so checkAll cannot return before this host is recorded
+                inFlight.release();
+            });
+        }
+        
+        // Wait for the remaining probes by taking back every permit
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        
+        return liveSubdomains;
+    }
+    
+    public CompletableFuture<ProbeResult> probe(String subdomain) {
+        // Like the DNS pre-filter, only a definite NXDOMAIN skips the probe, and those names
+        // never take a thread. HttpClient on Java 17 cannot be handed an address and looks the
+        // name up again on its own executor, so a name that exists is first looked up on the
+        // warm-up pool, where the I/O threads do not wait for it, and HttpClient hits the JVM cache
+        return lookup(subdomain)
+            .thenComposeAsync(result -> {
+                if (result != null && result.isNxDomain()) {
+                    return CompletableFuture.completedFuture(ProbeResult.dead(subdomain));
+                }
+                warmJvmCache(subdomain);
+                return raceSchemes ? race(subdomain) : sequential(subdomain);
+            }, warmup);
+    }
+    
+    // Names the pre-filter already answered are not looked up again; the rest go through the
+    // non-blocking resolver
+    private CompletableFuture<DnsResult> lookup(String subdomain) {
+        DnsResult known = knownResults.get(subdomain);
+        if (known != null || resolver == null) {
+            return CompletableFuture.completedFuture(known);
+        }
+        return resolver.resolve(subdomain);
+    }
+    
+    private void warmJvmCache(String subdomain) {
+        try {
+            InetAddress.getByName(subdomain);
+        } catch (UnknownHostException e) {
+            // Cached as a failure too, so HttpClient fails fast on it
+        }
+    }
+    
+    private CompletableFuture<ProbeResult> sequential(String subdomain) {
+        return probeUrl(subdomain, "https")
+            .thenCompose(https -> https.isLive()
+                ? CompletableFuture.completedFuture(https)
+                : probeUrl(subdomain, "http"));
+    }
+    
+    private CompletableFuture<ProbeResult> race(String subdomain) {
+        CompletableFuture<ProbeResult> result = new CompletableFuture<>();
+        List<ProbeResult> responded = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<ProbeResult> https = probeUrl(subdomain, "https");
+        CompletableFuture<ProbeResult> http = probeUrl(subdomain, "http");
+        
+        https.thenAccept(response -> finishRace(subdomain, response, responded, result, http));
+        http.thenAccept(response -> finishRace(subdomain, response, responded, result, https));
+        CompletableFuture.allOf(https, http)
+            .whenComplete((ignored, error) -> result.complete(snapshot(subdomain, responded)));
+        return result;
+    }
+    
+    private void finishRace(String subdomain, ProbeResult response, List<ProbeResult> responded,
+                            CompletableFuture<ProbeResult> result, CompletableFuture<ProbeResult> other) {
+        if (response.isLive()) {
+            responded.add(response);
+            if (result.complete(snapshot(subdomain, responded))) {
+                other.cancel(true);
+            }
+        }
+    }
+    
+    private ProbeResult snapshot(String subdomain, List<ProbeResult> responded) {
+        synchronized (responded) {
+            return ProbeResult.combine(subdomain, responded);
+        }
+    }
+    
+    private CompletableFuture<ProbeResult> probeUrl(String subdomain, String scheme) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(scheme + "://" + subdomain))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .timeout(requestTimeout)
+                .header("User-Agent", "SubMergeX/2.1")
+                .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ProbeResult.dead(subdomain));
+        }
+        
+        long startTime = System.nanoTime();
+        CompletableFuture<HttpResponse<Void>> exchange =
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        CompletableFuture<ProbeResult> live = exchange.handle((response, error) -> {
+            if (error != null || !isLiveStatus(response.statusCode())) {
+                return ProbeResult.dead(subdomain);
+            }
+            // response.uri() is where the followed redirects ended up; a redirect from https
+            // to http is not followed, so take that one from the Location header
+            URI finalUri = response.uri();
+            Optional<String> location = response.headers().firstValue("Location");
+            if (response.statusCode() >= 300 && location.isPresent()) {
+                try {
+                    finalUri = finalUri.resolve(location.get());
+                } catch (IllegalArgumentException e) {
+                    // Keep the last URI that was actually requested
+                }
+            }
+            long latency = (System.nanoTime() - startTime) / 1_000_000;
+            return new ProbeResult(subdomain, List.of(scheme), response.statusCode(),
+                                   finalUri.toString(), latency);
+        });
+        // Cancelling the probe (the losing side of a race) aborts the exchange itself
+        live.whenComplete((result, error) -> {
+            if (live.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return live;
+    }
+    
+    private void reportCertificates(Certificate[] chain) {
+        Consumer<Certificate[]> listener = certificateListener;
+        if (listener != null) {
+            listener.accept(chain);
+        }
+    }
+    
+    private boolean isLiveStatus(int statusCode) {
+        return statusCode >= 200 && statusCode < 400;
+    }
+    
+    public void setRaceSchemes(boolean raceSchemes) {
+        this.raceSchemes = raceSchemes;
+    }
+    
+    // Called with the chain of every TLS handshake, before it is validated
+    public void setCertificateListener(Consumer<Certificate[]> certificateListener) {
+        this.certificateListener = certificateListener;
+    }
+    
+    // Without a resolver every name is probed and HttpClient does the lookup itself
+    public void setResolver(DnsResolver resolver) {
+        this.resolver = resolver;
+    }
+    
+    public void setKnownResults(Map<String, DnsResult> knownResults) {
+        this.knownResults = knownResults;
+    }
+    
+    public void close() {
+        warmup.shutdownNow();
+        executor.shutdownNow();
+    }
+}
\ No newline at end of file
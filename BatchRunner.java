@@ -0,0 +1,340 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Scans every domain in a scope file without prompting, several at a time. The domains share one
+// process supervisor, one DNS resolver and one pool of HTTP probe permits, so the limits in the
+// config hold for the whole batch instead of being multiplied by the number of domains.
+public class BatchRunner {
+    private static final String USAGE = "Usage: java SubMergeXMain --batch <scope file> [--config <properties file>]";
+    // Engines whose probes go through the shared permits, and the external tools
+    private static final List<String> LIVE_TOOLS =
+        Arrays.asList("java", "java-virtual", "java-adaptive", "httpx", "httprobe", "none");
+    
+    private final List<String> tools;
+    private final String liveTool;
+    private final boolean dnsPrefilter;
+    private final boolean fingerprint;
+    private final boolean harvestSans;
+    private final boolean useCache;
+    private final int cacheTtlHours;
+    private final int cacheDeadTtlHours;
+    private final boolean screenshots;
+    private final boolean permutations;
+    private final boolean recursive;
+    private final int maxConcurrentDomains;
+    private final int maxProcesses;
+    private final int maxDnsInFlight;
+    private final int maxHttpInFlight;
+    private final int toolTimeoutSeconds;
+    private final int dnsTimeout;
+    private final String resolvers;
+    private final String wordlist;
+    private final String outputDirectory;
+    
+    public BatchRunner(Properties config) {
+        tools = Arrays.asList(config.getProperty("tools", "subfinder,assetfinder,crt.sh").trim().split("\\s*,\\s*"));
+        liveTool = config.getProperty("liveTool", "java").trim();
+        dnsPrefilter = booleanSetting(config, "dnsPrefilter", true);
+        fingerprint = booleanSetting(config, "fingerprint", true);
+        harvestSans = booleanSetting(config, "harvestSans", true);
+        useCache = booleanSetting(config, "cache", false);
+        cacheTtlHours = intSetting(config, "cacheTtlHours", 24);
+        cacheDeadTtlHours = intSetting(config, "cacheDeadTtlHours", 6);
+        screenshots = booleanSetting(config, "screenshots", false);
+        permutations = booleanSetting(config, "permutations", false);
+        recursive = booleanSetting(config, "recursive", false);
+        maxConcurrentDomains = intSetting(config, "maxConcurrentDomains", 4);
+        maxProcesses = intSetting(config, "maxProcesses", 8);
+        maxDnsInFlight = intSetting(config, "maxDnsInFlight", 2000);
+        maxHttpInFlight = intSetting(config, "maxHttpInFlight", 200);
+        toolTimeoutSeconds = intSetting(config, "toolTimeoutSeconds", 300);
+        dnsTimeout = intSetting(config, "dnsTimeoutMillis", 2000);
+        resolvers = config.getProperty("resolvers", DnsResolver.DEFAULT_RESOLVERS).trim();
+        wordlist = config.getProperty("wordlist", "").trim();
+        outputDirectory = config.getProperty("outputDirectory", ".").trim();
+        
+        if (!LIVE_TOOLS.contains(liveTool)) {
+            throw new IllegalArgumentException("liveTool must be one of " + LIVE_TOOLS + ", not " + liveTool);
+        }
+        Map<String, String> known = new SubdomainFinder().defaultCommands(tools, "example.com");
+        for (String tool : tools) {
+            if (!known.containsKey(tool)) {
+                throw new IllegalArgumentException("Unknown tool in config: " + tool);
+            }
+        }
+    }
+    
+    // Returns the exit code: 0 when every domain finished, 1 when some failed, 2 for bad arguments
+    public static int runFromArgs(String[] args) {
+        Path scopeFile = null;
+        Path configFile = null;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--config") && i + 1 < args.length) {
+                configFile = Paths.get(args[++i]);
+            } else if (scopeFile == null && !args[i].startsWith("--")) {
+                scopeFile = Paths.get(args[i]);
+            } else {
+                System.err.println(USAGE);
+                return 2;
+            }
+        }
+        if (scopeFile == null) {
+            System.err.println(USAGE);
+            return 2;
+        }
+        
+        try {
+            Properties config = new Properties();
+            if (configFile != null) {
+                try (Reader reader = Files.newBufferedReader(configFile)) {
+                    config.load(reader);
+                }
+            }
+            BatchRunner runner = new BatchRunner(config);
+            List<String> domains = loadScope(scopeFile);
+            if (domains.isEmpty()) {
+                System.err.println("No valid domains in " + scopeFile);
+                return 2;
+            }
+            List<DomainReport> reports = runner.run(domains);
+            return reports.stream().anyMatch(report -> report.error != null) ? 1 : 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Batch mode: " + e.getMessage());
+            return 2;
+        }
+    }
+    
+    // One apex per line; blank lines and lines starting with # are skipped
+    public static List<String> loadScope(Path scopeFile) throws IOException {
+        Set<String> domains = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(scopeFile)) {
+            String entry = line.trim();
+            if (entry.isEmpty() || entry.startsWith("#")) {
+                continue;
+            }
+            String domain = DomainName.normalize(entry);
+            if (domain == null) {
+                System.err.println("Skipping invalid domain in scope file: " + entry);
+            } else {
+                domains.add(domain);
+            }
+        }
+        return new ArrayList<>(domains);
+    }
+    
+    public List<DomainReport> run(List<String> domains) throws IOException {
+        Files.createDirectories(Paths.get(outputDirectory));
+        System.out.println("=".repeat(65));
+        System.out.printf("SubMergeX batch: %d domains, %d at a time\n", domains.size(), maxConcurrentDomains);
+        System.out.printf("Global limits: %d processes, %d DNS queries in flight, %d HTTP probes in flight\n",
+                        maxProcesses, maxDnsInFlight, maxHttpInFlight);
+        System.out.println("=".repeat(65));
+        
+        ProcessSupervisor supervisor = new ProcessSupervisor();
+        supervisor.setMaxProcesses(maxProcesses);
+        Semaphore probePermits = new Semaphore(maxHttpInFlight);
+        // Loaded once for all domains; each domain records into it and saves its own results
+        LivenessCache cache = useCache ? openCache() : null;
+        long startTime = System.currentTimeMillis();
+        
+        List<DomainReport> reports = new ArrayList<>();
+        try (DnsResolver resolver = new DnsResolver(DnsResolver.parseResolvers(resolvers), maxDnsInFlight,
+                                                    dnsTimeout, 2)) {
+            int workers = Math.max(1, Math.min(maxConcurrentDomains, domains.size()));
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            List<Future<DomainReport>> futures = new ArrayList<>();
+            for (String domain : domains) {
+                futures.add(executor.submit(() -> scanDomain(domain, supervisor, resolver, probePermits, cache)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    reports.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    DomainReport failed = new DomainReport(domains.get(i));
+                    failed.error = String.valueOf(e.getCause());
+                    reports.add(failed);
+                }
+            }
+            executor.shutdown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch interrupted");
+        }
+        
+        double seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+        writeBatchSummary(reports, seconds);
+        return reports;
+    }
+    
+    // Same steps as the interactive workflow with the answers taken from the config
+    private DomainReport scanDomain(String domain, ProcessSupervisor supervisor, DnsResolver resolver,
+                                    Semaphore probePermits, LivenessCache cache) {
+        DomainReport report = new DomainReport(domain);
+        long startTime = System.currentTimeMillis();
+        System.out.printf("\n[batch] Starting %s\n", domain);
+        
+        try {
+            SubdomainFinder finder = new SubdomainFinder();
+            finder.setProcessSupervisor(supervisor);
+            finder.setToolTimeoutSeconds(toolTimeoutSeconds);
+            if (finder.getSource("bruteforce") instanceof BruteForceSource) {
+                BruteForceSource bruteForce = (BruteForceSource) finder.getSource("bruteforce");
+                bruteForce.setSharedResolver(resolver);
+                if (!wordlist.isEmpty()) {
+                    bruteForce.setWordlist(Paths.get(wordlist));
+                }
+            }
+            
+            Set<String> allSubdomains = finder.executeCommands(finder.defaultCommands(tools, domain), null);
+            if (permutations && !allSubdomains.isEmpty()) {
+                finder.resolvePermutations(domain, allSubdomains, null);
+            }
+            if (recursive && !allSubdomains.isEmpty()) {
+                new RecursiveEnumerator(finder).run(domain, tools, allSubdomains);
+            }
+            
+            FileManager fileManager = new FileManager();
+            fileManager.setOutputRoot(outputDirectory);
+            report.outputFolder = fileManager.createOutputFolder(domain);
+            fileManager.saveSubdomains(report.outputFolder, domain, allSubdomains, "all");
+            
+            Set<String> liveSubdomains = new HashSet<>();
+            boolean captured = false;
+            if (!liveTool.equals("none") && !allSubdomains.isEmpty()) {
+                LiveChecker checker = new LiveChecker();
+                checker.setScope(domain);
+                checker.setProcessSupervisor(supervisor);
+                checker.setSharedResolver(resolver);
+                checker.setProbePermits(probePermits);
+                checker.setSharedCache(cache);
+                checker.setExternalToolTimeoutSeconds(toolTimeoutSeconds);
+                String tool = liveTool;
+                if (!tool.startsWith("java") && !checker.isExternalToolAvailable(tool)) {
+                    System.out.printf("[batch] %s not found, checking %s with Java\n", tool, domain);
+                    tool = "java";
+                }
+                
+                liveSubdomains = checker.checkLiveSubdomains(allSubdomains, tool, useCache, dnsPrefilter,
+                                                             fingerprint, harvestSans);
+                if (!liveSubdomains.isEmpty()) {
+                    fileManager.saveSubdomains(report.outputFolder, domain, liveSubdomains, "live");
+                    fileManager.saveLiveUrls(report.outputFolder, domain, liveSubdomains, checker.getProbeResults());
+                    fileManager.savePageGroups(report.outputFolder, domain, checker.getPageGroups());
+                }
+                Set<String> harvested = checker.getHarvestedNames();
+                if (!harvested.isEmpty()) {
+                    allSubdomains.addAll(harvested);
+                    fileManager.saveSubdomains(report.outputFolder, domain, harvested, "san");
+                    fileManager.saveSubdomains(report.outputFolder, domain, allSubdomains, "all");
+                }
+                
+                if (screenshots && !liveSubdomains.isEmpty()) {
+                    ScreenshotCapturer capturer = new ScreenshotCapturer();
+                    capturer.setProbeResults(checker.getProbeResults());
+                    capturer.setProcessSupervisor(supervisor);
+                    capturer.captureScreenshots(SubMergeXMain.screenshotTargets(checker.getPageGroups(), liveSubdomains),
+                                                report.outputFolder, null);
+                    captured = true;
+                }
+                fileManager.addReportStats(checker.getReportStats());
+            }
+            
+            fileManager.generateSummaryReport(report.outputFolder, domain, allSubdomains, liveSubdomains,
+                                              tools, captured);
+            report.found = allSubdomains.size();
+            report.live = liveSubdomains.size();
+        } catch (RuntimeException e) {
+            report.error = e.getMessage() != null ? e.getMessage() : e.toString();
+            System.err.println("[batch] " + domain + " failed: " + report.error);
+        }
+        
+        report.seconds = (System.currentTimeMillis() - startTime) / 1000.0;
+        System.out.printf("[batch] Finished %s: %d subdomains, %d live in %.1fs\n",
+                        domain, report.found, report.live, report.seconds);
+        return report;
+    }
+    
+    private void writeBatchSummary(List<DomainReport> reports, double seconds) {
+        List<String> lines = new ArrayList<>();
+        lines.add("SubMergeX Batch Summary");
+        lines.add("=======================");
+        lines.add("Generated: " + new Date());
+        lines.add(String.format("Domains: %d, failed: %d, total time: %.1fs", reports.size(),
+                                reports.stream().filter(report -> report.error != null).count(), seconds));
+        lines.add("Tools: " + String.join(", ", tools) + ", live check: " + liveTool);
+        lines.add(String.format("Global limits: %d processes, %d DNS in flight, %d HTTP in flight",
+                                maxProcesses, maxDnsInFlight, maxHttpInFlight));
+        lines.add("");
+        lines.add(String.format("%-40s %10s %6s %9s  %s", "DOMAIN", "SUBDOMAINS", "LIVE", "SECONDS", "OUTPUT"));
+        for (DomainReport report : reports) {
+            lines.add(String.format("%-40s %10d %6d %9.1f  %s", report.domain, report.found, report.live, report.seconds,
+                                    report.error != null ? "FAILED: " + report.error : report.outputFolder));
+        }
+        
+        System.out.println("\n" + "=".repeat(65));
+        lines.forEach(System.out::println);
+        System.out.println("=".repeat(65));
+        
+        Path summary = Paths.get(outputDirectory, "batch_summary.txt");
+        try {
+            Files.write(summary, lines);
+            System.out.println("Batch summary saved to: " + summary);
+        } catch (IOException e) {
+            System.err.println("Error writing batch summary: " + e.getMessage());
+        }
+    }
+    
+    private LivenessCache openCache() {
+        LiveChecker loader = new LiveChecker();
+        loader.setCacheTtlHours(cacheTtlHours, cacheDeadTtlHours);
+        return loader.openCache();
+    }
+    
+    private static int intSetting(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed < 1) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a positive number, not " + value);
+        }
+    }
+    
+    private static boolean booleanSetting(Properties config, String key, boolean defaultValue) {
+        String value = config.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "yes":
+                return true;
+            case "false":
+            case "no":
+                return false;
+            default:
+                throw new IllegalArgumentException(key + " must be true, false, yes or no, not " + value);
+        }
+    }
+    
+    public static class DomainReport {
+        final String domain;
+        String outputFolder = "";
+        int found = 0;
+        int live = 0;
+        double seconds = 0;
+        String error;
+        
+        DomainReport(String domain) {
+            this.domain = domain;
+        }
+    }
+}
\ No newline at end of file
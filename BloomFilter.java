@@ -0,0 +1,79 @@
+// Fixed-size membership test. An added item is always reported as present; a new item is
+// wrongly reported as present at a rate that grows as the filter fills. The memory is taken
+// up front and never grows, however many items go through it.
+public class BloomFilter {
+    private final long[] words;
+    private final long bits;
+    private final int hashes;
+    private long setBits = 0;
+    
+    public BloomFilter(long bits, int hashes) {
+        if (bits < 64 || bits > (long) Integer.MAX_VALUE << 6 || hashes < 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + bits + " bits, " + hashes + " hashes");
+        }
+        this.words = new long[(int) ((bits + 63) >>> 6)];
+        this.bits = (long) words.length << 6;
+        this.hashes = hashes;
+    }
+    
+    // Returns false if the item was probably added before
+    public boolean add(CharSequence item) {
+        long hash = hash(item);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words[word] & mask) == 0) {
+                words[word] |= mask;
+                setBits++;
+                added = true;
+            }
+        }
+        return added;
+    }
+    
+    public boolean mightContain(CharSequence item) {
+        long hash = hash(item);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public long getSizeBytes() {
+        return (long) words.length * 8;
+    }
+    
+    public double getFillRatio() {
+        return (double) setBits / bits;
+    }
+    
+    // Chance that an item never added is reported as present, at the current fill
+    public double getFalsePositiveRate() {
+        return Math.pow(getFillRatio(), hashes);
+    }
+    
+    // FNV-1a over the chars; mix() then spreads it over all 64 bits
+    private static long hash(CharSequence item) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < item.length(); i++) {
+            hash ^= item.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+    
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
\ No newline at end of file
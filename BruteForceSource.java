@@ -0,0 +1,213 @@
+import java.io.*;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Resolves <word>.<domain> for every word in a wordlist. Words are read one at a time and the
+// resolver window blocks the reader, so memory use does not depend on the size of the list.
+public class BruteForceSource implements EnumerationSource {
+    // Used when no wordlist is given; enough to catch the usual hosts on a quick run
+    private static final List<String> COMMON_WORDS = Arrays.asList(
+        "www", "mail", "webmail", "smtp", "pop", "imap", "mx", "ns1", "ns2", "dns", "vpn", "remote",
+        "api", "app", "dev", "test", "staging", "stage", "qa", "uat", "beta", "demo", "admin", "portal",
+        "intranet", "internal", "git", "gitlab", "jenkins", "ci", "jira", "confluence", "wiki", "docs",
+        "blog", "shop", "store", "cdn", "static", "assets", "media", "img", "files", "ftp", "sftp",
+        "backup", "db", "sql", "mysql", "redis", "monitor", "grafana", "kibana", "status", "auth", "sso",
+        "login", "id", "accounts", "m", "mobile", "secure", "support", "help", "crm", "erp", "owa",
+        "exchange", "autodiscover", "cloud", "s3", "proxy", "gateway", "web", "old", "new", "v1", "v2");
+    
+    private Path wordlist;
+    private String resolvers = DnsResolver.DEFAULT_RESOLVERS;
+    private int maxInFlight = 2000;
+    private int queryTimeout = 2000;
+    private int retries = 2;
+    private boolean wildcardFiltering = true;
+    // When set, queries share its window with everything else using it and it is not closed here
+    private DnsResolver sharedResolver;
+    
+    @Override
+    public String getName() {
+        return "bruteforce";
+    }
+    
+    @Override
+    public String describe(String domain) {
+        String words = wordlist != null ? wordlist.toString() : COMMON_WORDS.size() + " common words";
+        String via = sharedResolver != null ? "the shared resolver" : resolvers + ", " + maxInFlight + " in flight";
+        return "<word>." + domain + " for " + words + " via " + via;
+    }
+    
+    @Override
+    public void configure(Scanner scanner) {
+        System.out.print("Wordlist path (leave empty for " + COMMON_WORDS.size() + " common words): ");
+        String path = scanner.nextLine().trim();
+        if (!path.isEmpty()) {
+            wordlist = Paths.get(path);
+        }
+        System.out.print("DNS resolvers, comma-separated (default: " + resolvers + "): ");
+        String list = scanner.nextLine().trim();
+        if (!list.isEmpty()) {
+            resolvers = list;
+        }
+    }
+    
+    @Override
+    public long enumerate(String domain, long timeoutMillis, Consumer<String> onName) throws IOException {
+        DomainName scope = DomainName.parse(domain);
+        if (scope == null) {
+            throw new IllegalArgumentException("Invalid domain: " + domain);
+        }
+        try (BufferedReader reader = openWords()) {
+            Iterator<String> candidates = reader.lines()
+                .map(String::trim)
+                .filter(word -> !word.isEmpty() && !word.startsWith("#"))
+                .map(word -> DomainName.normalize(word + "." + scope))
+                .filter(Objects::nonNull)
+                .iterator();
+            return resolve(getName(), scope, candidates, timeoutMillis, onName);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    // Resolves full names in the order the iterator gives them, taking the next one only when the
+    // window has room, so candidates can be generated lazily. Used for wordlists and permutations.
+    public long resolve(String tool, DomainName scope, Iterator<String> candidates, long timeoutMillis,
+                        Consumer<String> onName) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + timeoutMillis;
+        long bytesBefore = sharedResolver != null ? sharedResolver.getBytesReceived() : 0;
+        long queriesBefore = sharedResolver != null ? sharedResolver.getQueriesSent() : 0;
+        
+        // Answers arrive on the resolver's I/O thread; names are checked and handed to onName from
+        // this thread, so a slow consumer holds back the wordlist instead of the resolver
+        BlockingQueue<DnsResult> hits = new LinkedBlockingQueue<>();
+        AtomicLong outstanding = new AtomicLong();
+        AtomicLong wildcardHits = new AtomicLong();
+        long words = 0;
+        boolean timedOut = false;
+        
+        try (DnsResolver owned = sharedResolver == null
+                 ? new DnsResolver(DnsResolver.parseResolvers(resolvers), maxInFlight, queryTimeout, retries) : null) {
+            DnsResolver resolver = owned != null ? owned : sharedResolver;
+            WildcardDetector detector = null;
+            if (wildcardFiltering) {
+                detector = new WildcardDetector(resolver, queryTimeout);
+                detector.setVerifyFingerprint(false);
+                WildcardDetector.ZoneWildcard wildcard = detector.detectZone(scope.toString());
+                if (wildcard != null) {
+                    System.out.printf("[%s] %s has wildcard DNS, names resolving to %s are dropped\n",
+                                    tool, scope, wildcard.addresses);
+                }
+            }
+            int zonesBefore = detector != null ? detector.getWildcardZones().size() : 0;
+            
+            while (candidates.hasNext()) {
+                if (System.currentTimeMillis() > deadline) {
+                    timedOut = true;
+                    break;
+                }
+                String candidate = candidates.next();
+                
+                words++;
+                outstanding.incrementAndGet();
+                resolver.resolve(candidate).thenAccept(result -> {
+                    if (result.isResolved()) {
+                        hits.add(result);
+                    }
+                    outstanding.decrementAndGet();
+                });
+                
+                DnsResult hit;
+                while ((hit = hits.poll()) != null) {
+                    deliver(hit, detector, wildcardHits, onName);
+                }
+            }
+            
+            while (!timedOut && (outstanding.get() > 0 || !hits.isEmpty())) {
+                DnsResult hit = hits.poll(50, TimeUnit.MILLISECONDS);
+                if (hit != null) {
+                    deliver(hit, detector, wildcardHits, onName);
+                }
+                timedOut = System.currentTimeMillis() > deadline;
+            }
+            
+            if (detector != null && detector.getWildcardZones().size() > zonesBefore) {
+                System.out.printf("[%s] Wildcard zones: %s\n", tool, String.join(", ", detector.getWildcardZones()));
+            }
+            
+            // With a shared resolver these include queries other users sent in the meantime
+            long queries = resolver.getQueriesSent() - queriesBefore;
+            double seconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+            System.out.printf("[%s] %d candidates, %d queries in %.2fs (%.0f queries/s)%s\n",
+                            tool, words, queries, seconds, queries / seconds,
+                            wildcardHits.get() > 0 ? ", " + wildcardHits.get() + " wildcard answers dropped" : "");
+            if (owned != null) {
+                for (String stats : resolver.getResolverStats()) {
+                    System.out.printf("[%s]   %s\n", tool, stats);
+                }
+            }
+            if (timedOut) {
+                throw new SocketTimeoutException("Brute force still running at the deadline");
+            }
+            return resolver.getBytesReceived() - bytesBefore;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while resolving names under " + scope);
+        }
+    }
+    
+    // A hit is checked against the wildcard of the zone it sits in, not only the scope, since
+    // permutations and sub-zones reach below names that answer for any label. The detector
+    // caches each zone, and probing runs here rather than on the resolver's I/O thread.
+    private static void deliver(DnsResult hit, WildcardDetector detector, AtomicLong wildcardHits,
+                                Consumer<String> onName) {
+        String zone = detector != null ? WildcardDetector.parentZone(hit.getName()) : null;
+        WildcardDetector.ZoneWildcard wildcard = zone != null ? detector.detectZone(zone) : null;
+        if (wildcard != null && wildcard.coversAddresses(hit)) {
+            wildcardHits.incrementAndGet();
+        } else {
+            onName.accept(hit.getName());
+        }
+    }
+    
+    // Wordlists are plain bytes in practice; anything that is not a valid label is skipped later
+    private BufferedReader openWords() throws IOException {
+        if (wordlist == null) {
+            return new BufferedReader(new StringReader(String.join("\n", COMMON_WORDS)));
+        }
+        return Files.newBufferedReader(wordlist, StandardCharsets.ISO_8859_1);
+    }
+    
+    public void setWordlist(Path wordlist) {
+        this.wordlist = wordlist;
+    }
+    
+    public void setResolvers(String resolvers) {
+        this.resolvers = resolvers;
+    }
+    
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+    
+    public void setQueryTimeout(int queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+    
+    public void setRetries(int retries) {
+        this.retries = retries;
+    }
+    
+    public void setSharedResolver(DnsResolver sharedResolver) {
+        this.sharedResolver = sharedResolver;
+    }
+    
+    public void setWildcardFiltering(boolean wildcardFiltering) {
+        this.wildcardFiltering = wildcardFiltering;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+// Certificate transparency names from crt.sh, parsed as the response streams in
+public class CrtShSource implements EnumerationSource {
+    private static final String DEFAULT_URL = "https://crt.sh/?q=%%25.%s&output=json";
+    // crt.sh answers 502/503 when its database is busy; the next try often succeeds
+    private static final int RETRIES = 2;
+    private static final long RETRY_DELAY_MILLIS = 2000;
+    
+    private String urlTemplate = DEFAULT_URL;
+    private int connectTimeout = 10000;
+    private int readTimeout = 60000;
+    
+    @Override
+    public String getName() {
+        return "crt.sh";
+    }
+    
+    @Override
+    public String describe(String domain) {
+        return "GET " + String.format(urlTemplate, domain);
+    }
+    
+    @Override
+    public long enumerate(String domain, long timeoutMillis, Consumer<String> onName) throws IOException {
+        DomainName scope = DomainName.parse(domain);
+        if (scope == null) {
+            throw new IllegalArgumentException("Invalid domain: " + domain);
+        }
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        
+        for (int attempt = 0; ; attempt++) {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(String.format(urlTemplate, domain)).toURL().openConnection();
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setRequestProperty("User-Agent", "SubMergeX/2.1");
+            // Certificate JSON is very repetitive and shrinks about tenfold
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            try {
+                int status = connection.getResponseCode();
+                if (status == 200) {
+                    return read(connection, scope, deadline, onName);
+                }
+                if (status < 500 || attempt >= RETRIES || System.currentTimeMillis() + RETRY_DELAY_MILLIS > deadline) {
+                    throw new IOException("crt.sh returned HTTP " + status);
+                }
+            } finally {
+                connection.disconnect();
+            }
+            System.out.printf("[crt.sh] Server busy, retrying in %ds\n", RETRY_DELAY_MILLIS / 1000);
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry crt.sh");
+            }
+        }
+    }
+    
+    // The response is an array of certificate records. name_value holds the certificate's
+    // identities separated by newlines and may include "*." entries; common_name is one more.
+    private long read(HttpURLConnection connection, DomainName scope, long deadline,
+                      Consumer<String> onName) throws IOException {
+        CountingInputStream counted = new CountingInputStream(connection.getInputStream());
+        InputStream body = "gzip".equalsIgnoreCase(connection.getContentEncoding())
+            ? new GZIPInputStream(counted, 65536) : counted;
+        
+        try (Reader reader = new InputStreamReader(body, StandardCharsets.UTF_8)) {
+            JsonTokenizer json = new JsonTokenizer(reader);
+            long tokens = 0;
+            JsonTokenizer.Token token;
+            while ((token = json.next()) != JsonTokenizer.Token.END_DOCUMENT) {
+                if ((++tokens & 0xFFF) == 0 && System.currentTimeMillis() > deadline) {
+                    throw new SocketTimeoutException("crt.sh response was still arriving at the deadline");
+                }
+                if (token != JsonTokenizer.Token.NAME) {
+                    continue;
+                }
+                String field = json.text();
+                if (!field.equals("name_value") && !field.equals("common_name")) {
+                    json.skipValue();
+                } else if (json.next() == JsonTokenizer.Token.STRING) {
+                    emit(json.text(), scope, onName);
+                }
+            }
+        }
+        return counted.count;
+    }
+    
+    private void emit(String value, DomainName scope, Consumer<String> onName) {
+        for (String line : value.split("\n")) {
+            DomainName name = DomainName.parse(line);
+            // Certificates for the domain can also name unrelated hosts
+            if (name != null && name.isWithin(scope)) {
+                onName.accept(name.toString());
+            }
+        }
+    }
+    
+    // Takes a format string with one %s for the domain, for example a local mirror of crt.sh
+    public void setUrlTemplate(String urlTemplate) {
+        this.urlTemplate = urlTemplate;
+    }
+    
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+    
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+    
+    // Counts the bytes that came over the wire, before decompression
+    private static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+        
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
\ No newline at end of file
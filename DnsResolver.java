@@ -0,0 +1,484 @@
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class DnsResolver implements Closeable {
+    public static final String DEFAULT_RESOLVERS = "1.1.1.1,8.8.8.8,9.9.9.9";
+    
+    private static final int TYPE_A = 1;
+    private static final int CLASS_IN = 1;
+    // A success moves a resolver's health this far towards 1; a failure halves it, so a resolver
+    // that drops even one query in ten ends up with a small share of the traffic
+    private static final double HEALTH_GAIN = 0.05;
+    private static final double HEALTH_LOSS = 0.5;
+    // A resolver that failed for a while is still tried now and then, so it can recover
+    private static final double MIN_HEALTH = 0.02;
+    // Lower bound for the timeout derived from a resolver's round-trip times
+    private static final long MIN_TIMEOUT_MILLIS = 250;
+    
+    private final List<Resolver> resolvers;
+    private final int timeoutMillis;
+    private final int retries;
+    private final Semaphore window;
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final Thread ioThread;
+    private final Queue<Query> submissions = new ConcurrentLinkedQueue<>();
+    private final Map<Integer, Query> pending = new HashMap<>();
+    private final Queue<Deadline> deadlines = new PriorityQueue<>(Comparator.comparingLong(d -> d.at));
+    private final Random random = new Random();
+    private volatile boolean running = true;
+    private int nextId = random.nextInt(65536);
+    private volatile long queriesSent = 0;
+    private volatile long bytesReceived = 0;
+    
+    public DnsResolver(List<InetSocketAddress> resolvers, int maxInFlight, int timeoutMillis, int retries)
+            throws IOException {
+        if (resolvers.isEmpty()) {
+            throw new IllegalArgumentException("At least one resolver is required");
+        }
+        this.resolvers = new ArrayList<>();
+        for (InetSocketAddress address : resolvers) {
+            this.resolvers.add(new Resolver(address));
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.retries = retries;
+        // Transaction IDs are 16 bits, so the window can never use them all up
+        this.window = new Semaphore(Math.min(maxInFlight, 60000));
+        this.channel = DatagramChannel.open();
+        // Answers to thousands of queries in flight arrive in bursts; the default buffer drops them
+        this.channel.setOption(StandardSocketOptions.SO_RCVBUF, 4 * 1024 * 1024);
+        this.channel.configureBlocking(false);
+        this.channel.bind(null);
+        this.selector = Selector.open();
+        this.channel.register(selector, SelectionKey.OP_READ);
+        this.ioThread = new Thread(this::ioLoop, "dns-resolver");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+    
+    public static List<InetSocketAddress> parseResolvers(String list) {
+        List<InetSocketAddress> resolvers = new ArrayList<>();
+        for (String entry : list.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int colon = entry.lastIndexOf(':');
+            if (colon > 0 && entry.indexOf(':') == colon) {
+                resolvers.add(new InetSocketAddress(entry.substring(0, colon),
+                                                    Integer.parseInt(entry.substring(colon + 1))));
+            } else {
+                resolvers.add(new InetSocketAddress(entry, 53));
+            }
+        }
+        return resolvers;
+    }
+    
+    public Map<String, DnsResult> resolveAll(Collection<String> names) {
+        Map<String, DnsResult> results = new ConcurrentHashMap<>();
+        List<CompletableFuture<DnsResult>> batch = new ArrayList<>();
+        
+        for (String name : names) {
+            batch.add(resolve(name).whenComplete((result, error) -> {
+                if (result != null) {
+                    results.put(name, result);
+                }
+            }));
+            // Drop completed futures now and then so the list stays small on huge inputs
+            if (batch.size() >= 10000) {
+                batch.removeIf(CompletableFuture::isDone);
+            }
+        }
+        CompletableFuture.allOf(batch.toArray(new CompletableFuture<?>[0])).join();
+        return results;
+    }
+    
+    // Blocks while the in-flight window is full
+    public CompletableFuture<DnsResult> resolve(String name) {
+        Query query = new Query(name);
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            query.future.complete(DnsResult.of(name, DnsResult.Status.ERROR));
+            return query.future;
+        }
+        // Checked under the lock the I/O thread's last drain takes, so a query is either drained
+        // or rejected here; one added after that drain would never complete
+        synchronized (submissions) {
+            if (!running) {
+                window.release();
+                query.future.complete(DnsResult.of(name, DnsResult.Status.ERROR));
+                return query.future;
+            }
+            query.future.whenComplete((result, error) -> window.release());
+            submissions.add(query);
+        }
+        selector.wakeup();
+        return query.future;
+    }
+    
+    private void ioLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        while (running) {
+            try {
+                selector.select(20);
+                selector.selectedKeys().clear();
+                
+                receive(buffer);
+                
+                Query query;
+                while ((query = submissions.poll()) != null) {
+                    send(query);
+                }
+                
+                expire();
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    System.err.println("DNS resolver error: " + e.getMessage());
+                }
+            }
+        }
+        
+        for (Query query : pending.values()) {
+            query.future.complete(DnsResult.of(query.name, DnsResult.Status.ERROR));
+        }
+        pending.clear();
+        // Completed outside the lock, so no callback runs while resolve() is held up on it
+        List<Query> rejected = new ArrayList<>();
+        synchronized (submissions) {
+            Query query;
+            while ((query = submissions.poll()) != null) {
+                rejected.add(query);
+            }
+        }
+        for (Query query : rejected) {
+            query.future.complete(DnsResult.of(query.name, DnsResult.Status.ERROR));
+        }
+    }
+    
+    private void send(Query query) throws IOException {
+        int id = allocateId();
+        query.id = id;
+        // A retry goes to a different resolver than the one that failed it
+        query.resolver = pickResolver(query.resolver);
+        query.sentAt = System.nanoTime();
+        long deadline = System.currentTimeMillis() + query.resolver.timeout(timeoutMillis);
+        
+        ByteBuffer packet;
+        try {
+            packet = encodeQuery(id, query.name);
+        } catch (IllegalArgumentException e) {
+            query.future.complete(DnsResult.of(query.name, DnsResult.Status.ERROR));
+            return;
+        }
+        pending.put(id, query);
+        deadlines.add(new Deadline(deadline, query, id, query.attempts));
+        channel.send(packet, query.resolver.address);
+        queriesSent++;
+    }
+    
+    // Picks at random in proportion to health, so a failing resolver quickly gets only a
+    // trickle of queries, which is also how it is noticed when it recovers
+    private Resolver pickResolver(Resolver excluded) {
+        if (resolvers.size() == 1) {
+            return resolvers.get(0);
+        }
+        double total = 0;
+        for (Resolver resolver : resolvers) {
+            if (resolver != excluded) {
+                total += resolver.health;
+            }
+        }
+        double point = random.nextDouble() * total;
+        Resolver picked = null;
+        for (Resolver resolver : resolvers) {
+            if (resolver != excluded) {
+                picked = resolver;
+                point -= resolver.health;
+                if (point < 0) {
+                    break;
+                }
+            }
+        }
+        return picked;
+    }
+    
+    private int allocateId() {
+        int id;
+        do {
+            id = nextId++ & 0xFFFF;
+        } while (pending.containsKey(id));
+        return id;
+    }
+    
+    private void receive(ByteBuffer buffer) throws IOException {
+        SocketAddress source;
+        while (true) {
+            buffer.clear();
+            source = channel.receive(buffer);
+            if (source == null) {
+                return;
+            }
+            buffer.flip();
+            if (buffer.remaining() < 12) {
+                continue;
+            }
+            
+            bytesReceived += buffer.remaining();
+            
+            int id = buffer.getShort(0) & 0xFFFF;
+            Query query = pending.get(id);
+            if (query == null || !query.resolver.address.equals(source)) {
+                continue;
+            }
+            
+            DnsResult result = decodeResponse(buffer, query.name);
+            if (result == null) {
+                // Mismatched question, ignore it like a stray packet
+                continue;
+            }
+            pending.remove(id);
+            query.resolver.sample((System.nanoTime() - query.sentAt) / 1_000_000.0);
+            
+            // SERVFAIL and REFUSED say more about the resolver than about the name
+            boolean failed = result.getStatus() == DnsResult.Status.SERVFAIL
+                || result.getStatus() == DnsResult.Status.ERROR;
+            query.resolver.record(!failed);
+            if (failed && query.attempts < retries) {
+                query.attempts++;
+                send(query);
+            } else {
+                query.future.complete(result);
+            }
+        }
+    }
+    
+    private void expire() throws IOException {
+        long now = System.currentTimeMillis();
+        Deadline next;
+        while ((next = deadlines.peek()) != null && next.at <= now) {
+            deadlines.poll();
+            Query query = next.query;
+            // Answered already, or resent with a deadline of its own
+            if (pending.get(next.id) != query || query.attempts != next.attempt) {
+                continue;
+            }
+            pending.remove(query.id);
+            query.resolver.timeouts++;
+            query.resolver.record(false);
+            if (query.attempts < retries) {
+                query.attempts++;
+                send(query);
+            } else {
+                query.future.complete(DnsResult.of(query.name, DnsResult.Status.TIMEOUT));
+            }
+        }
+    }
+    
+    public long getQueriesSent() {
+        return queriesSent;
+    }
+    
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+    
+    // One line per resolver with its health score, answers and timeouts so far
+    public List<String> getResolverStats() {
+        List<String> stats = new ArrayList<>();
+        for (Resolver resolver : resolvers) {
+            stats.add(String.format("%s: health %.2f, %d answered, %d timed out",
+                                  resolver.address, resolver.health, resolver.answered, resolver.timeouts));
+        }
+        return stats;
+    }
+    
+    static ByteBuffer encodeQuery(int id, String name) {
+        ByteBuffer packet = ByteBuffer.allocate(12 + name.length() + 2 + 4);
+        packet.putShort((short) id);
+        packet.putShort((short) 0x0100); // standard query, recursion desired
+        packet.putShort((short) 1);
+        packet.putShort((short) 0);
+        packet.putShort((short) 0);
+        packet.putShort((short) 0);
+        
+        for (String label : name.split("\\.")) {
+            if (label.isEmpty() || label.length() > 63) {
+                throw new IllegalArgumentException("Invalid label in " + name);
+            }
+            packet.put((byte) label.length());
+            for (int i = 0; i < label.length(); i++) {
+                packet.put((byte) label.charAt(i));
+            }
+        }
+        packet.put((byte) 0);
+        packet.putShort((short) TYPE_A);
+        packet.putShort((short) CLASS_IN);
+        packet.flip();
+        return packet;
+    }
+    
+    static DnsResult decodeResponse(ByteBuffer packet, String expectedName) {
+        try {
+            int flags = packet.getShort(2) & 0xFFFF;
+            int questions = packet.getShort(4) & 0xFFFF;
+            int answers = packet.getShort(6) & 0xFFFF;
+            if ((flags & 0x8000) == 0 || questions != 1) {
+                return null;
+            }
+            
+            int position = 12;
+            StringBuilder question = new StringBuilder();
+            position = readName(packet, position, question);
+            if (!question.toString().equalsIgnoreCase(expectedName)) {
+                return null;
+            }
+            position += 4;
+            
+            int rcode = flags & 0x000F;
+            if (rcode == 3) {
+                return DnsResult.of(expectedName, DnsResult.Status.NXDOMAIN);
+            } else if (rcode == 2) {
+                return DnsResult.of(expectedName, DnsResult.Status.SERVFAIL);
+            } else if (rcode != 0) {
+                return DnsResult.of(expectedName, DnsResult.Status.ERROR);
+            }
+            
+            List<String> addresses = new ArrayList<>();
+            for (int i = 0; i < answers; i++) {
+                position = readName(packet, position, null);
+                int type = packet.getShort(position) & 0xFFFF;
+                int length = packet.getShort(position + 8) & 0xFFFF;
+                position += 10;
+                if (type == TYPE_A && length == 4) {
+                    addresses.add((packet.get(position) & 0xFF) + "." + (packet.get(position + 1) & 0xFF) + "."
+                                  + (packet.get(position + 2) & 0xFF) + "." + (packet.get(position + 3) & 0xFF));
+                }
+                position += length;
+            }
+            
+            return new DnsResult(expectedName,
+                addresses.isEmpty() ? DnsResult.Status.NO_ANSWER : DnsResult.Status.RESOLVED, addresses);
+        } catch (IndexOutOfBoundsException e) {
+            return DnsResult.of(expectedName, DnsResult.Status.ERROR);
+        }
+    }
+    
+    // Returns the position after the name; follows compression pointers when collecting labels
+    private static int readName(ByteBuffer packet, int position, StringBuilder name) {
+        int end = -1;
+        int jumps = 0;
+        while (true) {
+            int length = packet.get(position) & 0xFF;
+            if ((length & 0xC0) == 0xC0) {
+                if (end < 0) {
+                    end = position + 2;
+                }
+                if (++jumps > 16) {
+                    throw new IndexOutOfBoundsException("Compression loop");
+                }
+                position = ((length & 0x3F) << 8) | (packet.get(position + 1) & 0xFF);
+                continue;
+            }
+            if (length == 0) {
+                return end < 0 ? position + 1 : end;
+            }
+            if (name != null) {
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                for (int i = 1; i <= length; i++) {
+                    name.append((char) (packet.get(position + i) & 0xFF));
+                }
+            }
+            position += length + 1;
+        }
+    }
+    
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            ioThread.join(1000);
+            selector.close();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Nothing left to clean up
+        }
+    }
+    
+    // Only touched by the I/O thread; the stats are read racily, which is fine for display
+    private static class Resolver {
+        final InetSocketAddress address;
+        volatile double health = 1.0;
+        // Smoothed round-trip time and its variation in milliseconds, as TCP keeps them (RFC 6298)
+        double srtt = -1;
+        double rttvar = 0;
+        volatile long answered = 0;
+        volatile long timeouts = 0;
+        
+        Resolver(InetSocketAddress address) {
+            this.address = address;
+        }
+        
+        void sample(double rtt) {
+            if (srtt < 0) {
+                srtt = rtt;
+                rttvar = rtt / 2;
+            } else {
+                rttvar = 0.75 * rttvar + 0.25 * Math.abs(srtt - rtt);
+                srtt = 0.875 * srtt + 0.125 * rtt;
+            }
+        }
+        
+        // A fast resolver gives up on a lost packet long before the configured timeout
+        long timeout(int maxMillis) {
+            if (srtt < 0) {
+                return maxMillis;
+            }
+            return (long) Math.min(maxMillis, Math.max(MIN_TIMEOUT_MILLIS, srtt + 4 * rttvar));
+        }
+        
+        void record(boolean success) {
+            health = success ? health + HEALTH_GAIN * (1 - health) : Math.max(MIN_HEALTH, health * HEALTH_LOSS);
+            if (success) {
+                answered++;
+            }
+        }
+    }
+    
+    private static class Deadline {
+        final long at;
+        final Query query;
+        final int id;
+        final int attempt;
+        
+        Deadline(long at, Query query, int id, int attempt) {
+            this.at = at;
+            this.query = query;
+            this.id = id;
+            this.attempt = attempt;
+        }
+    }
+    
+    private static class Query {
+        final String name;
+        final CompletableFuture<DnsResult> future = new CompletableFuture<>();
+        Resolver resolver;
+        int id;
+        int attempts = 0;
+        long sentAt;
+        
+        Query(String name) {
+            this.name = name;
+        }
+    }
+}
\ No newline at end of file
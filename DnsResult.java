@@ -0,0 +1,45 @@
+import java.util.*;
+
+public class DnsResult {
+    public enum Status { RESOLVED, NO_ANSWER, NXDOMAIN, SERVFAIL, TIMEOUT, ERROR }
+    
+    private final String name;
+    private final Status status;
+    private final List<String> addresses;
+    
+    public DnsResult(String name, Status status, List<String> addresses) {
+        this.name = name;
+        this.status = status;
+        this.addresses = Collections.unmodifiableList(new ArrayList<>(addresses));
+    }
+    
+    public static DnsResult of(String name, Status status) {
+        return new DnsResult(name, status, Collections.emptyList());
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    // IPv4 addresses from the A records in the answer, in answer order
+    public List<String> getAddresses() {
+        return addresses;
+    }
+    
+    public boolean isNxDomain() {
+        return status == Status.NXDOMAIN;
+    }
+    
+    public boolean isResolved() {
+        return status == Status.RESOLVED;
+    }
+    
+    @Override
+    public String toString() {
+        return name + " " + status + " " + addresses;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,268 @@
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class DomainName implements Comparable<DomainName> {
+    private static final int MAX_LENGTH = 253;
+    private static final int MAX_LABEL = 63;
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[512]);
+    
+    private final byte[] bytes;
+    private final byte[] labelStarts;
+    private final int hash;
+    private String text;
+    
+    private DomainName(byte[] bytes, String text) {
+        this.bytes = bytes;
+        this.text = text;
+        
+        int labels = 1;
+        for (byte b : bytes) {
+            if (b == '.') {
+                labels++;
+            }
+        }
+        // Names are at most 253 bytes, so every offset fits in an unsigned byte
+        labelStarts = new byte[labels];
+        int label = 1;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '.') {
+                labelStarts[label++] = (byte) (i + 1);
+            }
+        }
+        hash = Arrays.hashCode(bytes);
+    }
+    
+    public static DomainName parse(CharSequence input) {
+        String normalized = normalize(input);
+        return normalized == null ? null
+            : new DomainName(normalized.getBytes(StandardCharsets.ISO_8859_1), normalized);
+    }
+    
+    public static DomainName parse(byte[] buffer, int offset, int length) {
+        long range = normalizeInPlace(buffer, offset, length);
+        if (range < 0) {
+            return null;
+        }
+        int start = (int) (range >>> 32);
+        return new DomainName(Arrays.copyOfRange(buffer, start, start + (int) range), null);
+    }
+    
+    public static boolean isValid(CharSequence input) {
+        return normalize(input) != null;
+    }
+    
+    // Returns the lowercased name without a "*." prefix or trailing dot, or null if it is not
+    // a valid host name. An input that is already normalized is returned as is.
+    public static String normalize(CharSequence input) {
+        int length = input.length();
+        if (length == 0 || length > 2 * MAX_LENGTH) {
+            return null;
+        }
+        
+        byte[] scratch = SCRATCH.get();
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c > 0x7F) {
+                return normalizeUnicode(input);
+            }
+            scratch[i] = (byte) c;
+        }
+        
+        long range = normalizeInPlace(scratch, 0, length);
+        if (range < 0) {
+            return null;
+        }
+        int start = (int) (range >>> 32);
+        int size = (int) range;
+        if (start == 0 && size == length && input instanceof String && unchanged(scratch, (String) input)) {
+            return (String) input;
+        }
+        return new String(scratch, start, size, StandardCharsets.ISO_8859_1);
+    }
+    
+    private static String normalizeUnicode(CharSequence input) {
+        try {
+            String ascii = IDN.toASCII(input.toString().trim(), IDN.ALLOW_UNASSIGNED);
+            for (int i = 0; i < ascii.length(); i++) {
+                if (ascii.charAt(i) > 0x7F) {
+                    return null;
+                }
+            }
+            return normalize(ascii);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private static boolean unchanged(byte[] scratch, String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (scratch[i] != input.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Validates and lowercases the ASCII name in buffer[offset, offset + length) in place
+     * without allocating. Surrounding whitespace, a leading "*." and a trailing dot are
+     * dropped. Returns the normalized range packed as (start << 32 | length), or -1.
+     */
+    public static long normalizeInPlace(byte[] buffer, int offset, int length) {
+        int from = offset;
+        int to = offset + length;
+        while (from < to && (buffer[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (buffer[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        if (to - from >= 2 && buffer[from] == '*' && buffer[from + 1] == '.') {
+            from += 2;
+        }
+        if (to > from && buffer[to - 1] == '.') {
+            to--;
+        }
+        
+        int size = to - from;
+        if (size <= 3 || size > MAX_LENGTH) {
+            return -1;
+        }
+        
+        int labelStart = from;
+        int labels = 0;
+        boolean lettersOnly = true;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buffer[i] == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL
+                        || buffer[labelStart] == '-' || buffer[i - 1] == '-') {
+                    return -1;
+                }
+                labels++;
+                if (i < to) {
+                    labelStart = i + 1;
+                    lettersOnly = true;
+                }
+                continue;
+            }
+            
+            byte c = buffer[i];
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+                buffer[i] = c;
+            }
+            if (c >= 'a' && c <= 'z') {
+                continue;
+            }
+            if ((c >= '0' && c <= '9') || c == '-') {
+                lettersOnly = false;
+                continue;
+            }
+            return -1;
+        }
+        
+        // The top-level label is alphabetic (at least two letters) or an IDN in punycode
+        int tldLength = to - labelStart;
+        boolean punycode = tldLength > 4 && buffer[labelStart] == 'x' && buffer[labelStart + 1] == 'n'
+            && buffer[labelStart + 2] == '-' && buffer[labelStart + 3] == '-';
+        if (labels < 2 || !(punycode || (lettersOnly && tldLength >= 2))) {
+            return -1;
+        }
+        
+        return ((long) from << 32) | size;
+    }
+    
+    public int length() {
+        return bytes.length;
+    }
+    
+    public int labelCount() {
+        return labelStarts.length;
+    }
+    
+    // Labels are numbered from the left, so label(labelCount() - 1) is the top-level label
+    public String label(int index) {
+        int start = labelStart(index);
+        return new String(bytes, start, labelEnd(index) - start, StandardCharsets.ISO_8859_1);
+    }
+    
+    public byte[] labelBytes(int index) {
+        return Arrays.copyOfRange(bytes, labelStart(index), labelEnd(index));
+    }
+    
+    private int labelStart(int index) {
+        return labelStarts[index] & 0xFF;
+    }
+    
+    private int labelEnd(int index) {
+        return index + 1 < labelStarts.length ? labelStart(index + 1) - 1 : bytes.length;
+    }
+    
+    public DomainName parent() {
+        if (labelStarts.length <= 2) {
+            return null;
+        }
+        int start = labelStart(1);
+        return new DomainName(Arrays.copyOfRange(bytes, start, bytes.length), null);
+    }
+    
+    public boolean isWithin(DomainName zone) {
+        int offset = bytes.length - zone.bytes.length;
+        if (offset < 0 || (offset > 0 && bytes[offset - 1] != '.')) {
+            return false;
+        }
+        for (int i = 0; i < zone.bytes.length; i++) {
+            if (bytes[offset + i] != zone.bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Canonical DNS order: compares label by label starting from the top-level label
+    @Override
+    public int compareTo(DomainName other) {
+        int mine = labelStarts.length - 1;
+        int theirs = other.labelStarts.length - 1;
+        while (mine >= 0 && theirs >= 0) {
+            int a = labelStart(mine);
+            int aEnd = labelEnd(mine);
+            int b = other.labelStart(theirs);
+            int bEnd = other.labelEnd(theirs);
+            int order = Arrays.compare(bytes, a, aEnd, other.bytes, b, bEnd);
+            if (order != 0) {
+                return order;
+            }
+            mine--;
+            theirs--;
+        }
+        return Integer.compare(labelStarts.length, other.labelStarts.length);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DomainName)) {
+            return false;
+        }
+        DomainName other = (DomainName) o;
+        return hash == other.hash && Arrays.equals(bytes, other.bytes);
+    }
+    
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+    
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        return text;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+import java.io.IOException;
+import java.util.Scanner;
+import java.util.function.Consumer;
+
+// A source of candidate names that runs inside the JVM instead of as an external tool
+public interface EnumerationSource {
+    // Shown in the tool list and used as the tool name in timings
+    String getName();
+    
+    // What the source will query for the domain, shown where a command line would be
+    String describe(String domain);
+    
+    // Asks for any settings the source needs once it has been selected
+    default void configure(Scanner scanner) {
+    }
+    
+    // Emits names as they are found; the caller normalizes and deduplicates them. Gives up with
+    // a SocketTimeoutException once timeoutMillis has passed. Returns the number of bytes read.
+    long enumerate(String domain, long timeoutMillis, Consumer<String> onName) throws IOException;
+}
\ No newline at end of file
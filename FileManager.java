@@ -1,12 +1,19 @@
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
 import java.text.SimpleDateFormat;
+import java.util.regex.Pattern;
 
 public class FileManager {
+    private final Map<String, String> reportStats = new LinkedHashMap<>();
+    private String outputRoot;
     
     public String createOutputFolder(String domain) {
         String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
         String folderName = domain + "_SubMergeX_" + timestamp;
+        if (outputRoot != null) {
+            folderName = outputRoot + "/" + folderName;
+        }
         
         File folder = new File(folderName);
         if (!folder.exists()) {
@@ -42,7 +49,37 @@ public class FileManager {
         }
     }
     
-    public void saveLiveUrls(String outputFolder, String domain, Set<String> liveSubdomains) {
+    public void savePageGroups(String outputFolder, String domain, PageGroups pageGroups) {
+        if (pageGroups == null || pageGroups.getHostCount() == 0) {
+            return;
+        }
+        
+        String filename = outputFolder + "/" + domain + "_page_groups.txt";
+        
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
+            writer.println("# Page groups for " + domain);
+            writer.println("# Generated on: " + new Date());
+            writer.println("# Total groups: " + pageGroups.getGroupCount() + " across " + pageGroups.getHostCount() + " hosts");
+            writer.println("# Format: one block per group, the first host is the one screenshotted");
+            writer.println();
+            
+            int number = 0;
+            for (PageGroups.Group group : pageGroups.getGroups()) {
+                ResponseFingerprint fingerprint = group.getFingerprint();
+                writer.printf("[%d] %d hosts  %s\n", ++number, group.getMembers().size(),
+                              fingerprint != null ? fingerprint : "(page could not be fetched)");
+                group.getMembers().forEach(host -> writer.println("  " + host));
+                writer.println();
+            }
+            
+            System.out.println("Page groups saved to: " + filename);
+        } catch (IOException e) {
+            System.err.println("Error saving page groups: " + e.getMessage());
+        }
+    }
+    
+    public void saveLiveUrls(String outputFolder, String domain, Set<String> liveSubdomains,
+                             Map<String, ProbeResult> probeResults) {
         if (liveSubdomains.isEmpty()) {
             return;
         }
@@ -52,7 +89,7 @@ public class FileManager {
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
             writer.println("# Live URLs for " + domain);
             writer.println("# Generated on: " + new Date());
-            writer.println("# Format: HTTP and HTTPS variants");
+            writer.println("# Format: one URL per scheme that responded during live checking");
             writer.println();
             
             List<String> sortedSubdomains = liveSubdomains.stream()
@@ -60,8 +97,9 @@ public class FileManager {
                 .collect(java.util.stream.Collectors.toList());
                 
             for (String subdomain : sortedSubdomains) {
-                writer.println("https://" + subdomain);
-                writer.println("http://" + subdomain);
+                for (String url : ProbeResult.urls(subdomain, probeResults.get(subdomain))) {
+                    writer.println(url);
+                }
             }
             
             System.out.println("Live URLs saved to: " + filename);
@@ -71,22 +109,86 @@ public class FileManager {
     }
     
     public Set<String> loadSubdomainsFromFile(String filePath) {
-        Set<String> subdomains = new HashSet<>();
+        SubdomainListLoader loader = new SubdomainListLoader();
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (!line.isEmpty() && !line.startsWith("#") && isValidSubdomain(line)) {
-                    subdomains.add(line.toLowerCase());
+        try {
+            long startTime = System.currentTimeMillis();
+            Set<String> subdomains = loader.load(Paths.get(filePath));
+            double seconds = Math.max(System.currentTimeMillis() - startTime, 1) / 1000.0;
+            double megabytes = loader.getBytesRead() / (1024.0 * 1024.0);
+            
+            System.out.printf("Loaded %d subdomains from file (%.1f MB in %.2fs, %.1f MB/s)\n",
+                            subdomains.size(), megabytes, seconds, megabytes / seconds);
+            return subdomains;
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            return new HashSet<>();
+        }
+    }
+    
+    // Looks where createOutputFolder puts runs, and returns a path that createOutputFolder could have returned
+    public String findPreviousRunFolder(String domain, String currentFolder) {
+        Pattern runFolder = Pattern.compile(Pattern.quote(domain) + "_SubMergeX_\\d{8}_\\d{6}");
+        File root = new File(outputRoot != null ? outputRoot : ".");
+        File[] folders = root.listFiles(f -> f.isDirectory()
+            && runFolder.matcher(f.getName()).matches()
+            && !f.getName().equals(new File(currentFolder).getName())
+            && new File(f, domain + "_all_subdomains.txt").exists());
+        
+        if (folders == null || folders.length == 0) {
+            return null;
+        }
+        // Timestamps in the folder names sort chronologically
+        String latest = Arrays.stream(folders).map(File::getName).max(String::compareTo).orElse(null);
+        return latest != null && outputRoot != null ? outputRoot + "/" + latest : latest;
+    }
+    
+    public Set<String> computeDelta(String previousFolder, String outputFolder, String domain) {
+        String previousFile = previousFolder + "/" + domain + "_all_subdomains.txt";
+        String currentFile = outputFolder + "/" + domain + "_all_subdomains.txt";
+        String newFile = outputFolder + "/new_subdomains.txt";
+        String removedFile = outputFolder + "/removed_subdomains.txt";
+        Set<String> newSubdomains = new HashSet<>();
+        int removed = 0;
+        
+        // Both inputs are written sorted by saveSubdomains, so one merge pass finds the delta
+        try (SortedLineReader previous = new SortedLineReader(previousFile);
+             SortedLineReader current = new SortedLineReader(currentFile);
+             PrintWriter newWriter = new PrintWriter(new FileWriter(newFile));
+             PrintWriter removedWriter = new PrintWriter(new FileWriter(removedFile))) {
+            
+            newWriter.println("# New subdomains for " + domain + " since " + previousFolder);
+            removedWriter.println("# Removed subdomains for " + domain + " since " + previousFolder);
+            
+            String before = previous.next();
+            String now = current.next();
+            while (before != null || now != null) {
+                int order = before == null ? 1 : now == null ? -1 : before.compareTo(now);
+                if (order < 0) {
+                    removedWriter.println(before);
+                    removed++;
+                    before = previous.next();
+                } else if (order > 0) {
+                    newWriter.println(now);
+                    newSubdomains.add(now);
+                    now = current.next();
+                } else {
+                    before = previous.next();
+                    now = current.next();
                 }
             }
-            System.out.println("Loaded " + subdomains.size() + " subdomains from file");
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Error comparing with previous run: " + e.getMessage());
+            return null;
         }
         
-        return subdomains;
+        System.out.printf("Delta against %s: %d new, %d removed\n", previousFolder, newSubdomains.size(), removed);
+        System.out.println("New subdomains saved to: " + newFile);
+        System.out.println("Removed subdomains saved to: " + removedFile);
+        reportStats.put("Compared with previous run", previousFolder);
+        reportStats.put("New since previous run", String.valueOf(newSubdomains.size()));
+        reportStats.put("Removed since previous run", String.valueOf(removed));
+        return newSubdomains;
     }
     
     public void generateSummaryReport(String outputFolder, String domain, 
@@ -118,6 +220,10 @@ public class FileManager {
                 writer.println("Screenshots captured: Yes");
             }
             
+            for (Map.Entry<String, String> stat : reportStats.entrySet()) {
+                writer.println(stat.getKey() + ": " + stat.getValue());
+            }
+            
             writer.println();
             writer.println("OUTPUT FILES:");
             writer.println("-------------");
@@ -151,6 +257,15 @@ public class FileManager {
         }
     }
     
+    // Output folders go in this directory instead of the working directory
+    public void setOutputRoot(String outputRoot) {
+        this.outputRoot = outputRoot;
+    }
+    
+    public void addReportStats(Map<String, String> stats) {
+        reportStats.putAll(stats);
+    }
+    
     private String capitalize(String str) {
         if (str == null || str.isEmpty()) {
             return str;
@@ -158,10 +273,36 @@ public class FileManager {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private boolean isValidSubdomain(String subdomain) {
-        return subdomain.matches("^[a-zA-Z0-9][a-zA-Z0-9.-]*\\.[a-zA-Z]{2,}$") &&
-               !subdomain.startsWith(".") &&
-               !subdomain.endsWith(".") &&
-               subdomain.length() > 3;
+    // Reads the names from a saved subdomain list, skipping headers and checking the sort order
+    private static class SortedLineReader implements Closeable {
+        private final BufferedReader reader;
+        private final String fileName;
+        private String last;
+        
+        SortedLineReader(String fileName) throws IOException {
+            this.reader = new BufferedReader(new FileReader(fileName));
+            this.fileName = fileName;
+        }
+        
+        String next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (last != null && line.compareTo(last) < 0) {
+                    throw new IllegalStateException(fileName + " is not sorted");
+                }
+                last = line;
+                return line;
+            }
+            return null;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,428 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import javax.net.ssl.*;
+
+public class GroupedProbeEngine {
+    private static final String[] SCHEMES = {"https", "http"};
+    // A lane below this size is not worth its own connection
+    private static final int MIN_HOSTS_PER_LANE = 16;
+    private static final int MAX_HEADER_BYTES = 32768;
+    
+    private final int workers;
+    private final int connectionsPerAddress;
+    private final int timeoutMillis;
+    private Consumer<Certificate[]> certificateListener;
+    
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    
+    public GroupedProbeEngine(int workers, int connectionsPerAddress, int timeoutMillis) {
+        this.workers = workers;
+        this.connectionsPerAddress = connectionsPerAddress;
+        this.timeoutMillis = timeoutMillis;
+        // Fail here rather than in every lane
+        newTlsContext();
+    }
+    
+    private SSLContext newTlsContext() {
+        return SanHarvester.reportingContext(chain -> {
+            Consumer<Certificate[]> listener = certificateListener;
+            if (listener != null) {
+                listener.accept(chain);
+            }
+        });
+    }
+    
+    // Addresses already found by the DNS pre-filter are reused; other names are looked up here
+    public Map<String, ProbeResult> checkAll(Collection<String> subdomains, Map<String, DnsResult> dnsResults) {
+        Map<String, ProbeResult> liveSubdomains = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        
+        try {
+            Map<InetAddress, List<String>> groups = groupByAddress(subdomains, dnsResults, executor);
+            List<Future<?>> futures = new ArrayList<>();
+            int lanes = 0;
+            
+            for (Map.Entry<InetAddress, List<String>> group : groups.entrySet()) {
+                List<String> hosts = group.getValue();
+                int laneCount = Math.max(1, Math.min(connectionsPerAddress, hosts.size() / MIN_HOSTS_PER_LANE));
+                for (int lane = 0; lane < laneCount; lane++) {
+                    List<String> laneHosts = new ArrayList<>();
+                    for (int i = lane; i < hosts.size(); i += laneCount) {
+                        laneHosts.add(hosts.get(i));
+                    }
+                    futures.add(executor.submit(() -> new Lane(group.getKey()).probeAll(laneHosts, liveSubdomains)));
+                    lanes++;
+                }
+            }
+            System.out.printf("Grouped %d resolvable names onto %d addresses (%d connection lanes)\n",
+                            groups.values().stream().mapToInt(List::size).sum(), groups.size(), lanes);
+            
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    System.err.println("Error in probe lane: " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        System.out.printf("Connections: %d opened for %d requests, TLS handshakes: %d full, %d resumed\n",
+                        connectionsOpened.get(), requests.get(), fullHandshakes.get(), resumedHandshakes.get());
+        return liveSubdomains;
+    }
+    
+    // Only the first address of each name is used; names that do not resolve are left out
+    private Map<InetAddress, List<String>> groupByAddress(Collection<String> subdomains,
+                                                         Map<String, DnsResult> dnsResults,
+                                                         ExecutorService executor) throws InterruptedException {
+        Map<InetAddress, List<String>> groups = new ConcurrentHashMap<>();
+        List<Callable<Void>> lookups = new ArrayList<>();
+        
+        for (String subdomain : subdomains) {
+            lookups.add(() -> {
+                InetAddress address = lookup(subdomain, dnsResults.get(subdomain));
+                if (address != null) {
+                    groups.computeIfAbsent(address, a -> Collections.synchronizedList(new ArrayList<>()))
+                          .add(subdomain);
+                }
+                return null;
+            });
+        }
+        executor.invokeAll(lookups);
+        return groups;
+    }
+    
+    private InetAddress lookup(String subdomain, DnsResult dnsResult) {
+        try {
+            if (dnsResult != null && dnsResult.isResolved() && !dnsResult.getAddresses().isEmpty()) {
+                // A literal address, so no lookup happens here
+                return InetAddress.getByName(dnsResult.getAddresses().get(0));
+            }
+            return InetAddress.getByName(subdomain);
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+    
+    // Probes its hosts one after another over at most one HTTP and one HTTPS connection
+    // to a single address, opening a new one only when the old one cannot be used
+    private class Lane {
+        private final InetAddress address;
+        private Connection http;
+        private Connection https;
+        // Every name on the address shares its ports, so a port that refused or timed out is not tried again
+        private final Set<Integer> deadPorts = new HashSet<>();
+        // The JDK caches client sessions by peer host and port, so a session keyed by the address lets
+        // other names on it resume. A resumed session skips the certificate check, so the lane keeps
+        // its own cache and resumes only for names the certificate of the cached session covers
+        private final SSLContext tlsContext = newTlsContext();
+        private X509Certificate sessionCertificate;
+        
+        Lane(InetAddress address) {
+            this.address = address;
+        }
+        
+        void probeAll(List<String> hosts, Map<String, ProbeResult> liveSubdomains) {
+            try {
+                for (String host : hosts) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    ProbeResult result = probe(host);
+                    if (result.isLive()) {
+                        liveSubdomains.put(host, result);
+                        System.out.printf("Live: %s\n", host);
+                    }
+                }
+            } finally {
+                close(http);
+                close(https);
+            }
+        }
+        
+        private ProbeResult probe(String host) {
+            for (String scheme : SCHEMES) {
+                ProbeResult result = request(scheme, host);
+                if (result.isLive()) {
+                    return result;
+                }
+            }
+            return ProbeResult.dead(host);
+        }
+        
+        private ProbeResult request(String scheme, String host) {
+            boolean tls = scheme.equals("https");
+            boolean forceNew = false;
+            
+            // A kept-alive connection may have been closed by the server in the meantime, and a
+            // shared TLS connection may be refused for another name, so allow one fresh retry
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Connection connection = null;
+                long startTime = System.nanoTime();
+                try {
+                    connection = tls ? tlsConnection(host, forceNew) : plainConnection(forceNew);
+                    Response response = connection.head(host);
+                    requests.incrementAndGet();
+                    
+                    if (!response.keepAlive) {
+                        drop(connection);
+                    }
+                    if (response.statusCode == 421 && !forceNew) {
+                        // Misdirected: this server wants its own SNI for the name
+                        drop(connection);
+                        forceNew = true;
+                        continue;
+                    }
+                    if (response.statusCode < 200 || response.statusCode >= 400) {
+                        return ProbeResult.dead(host);
+                    }
+                    
+                    String finalUrl = scheme + "://" + host + "/";
+                    if (response.statusCode >= 300 && response.location != null) {
+                        try {
+                            finalUrl = URI.create(finalUrl).resolve(response.location).toString();
+                        } catch (IllegalArgumentException e) {
+                            // Keep the requested URL
+                        }
+                    }
+                    long latency = (System.nanoTime() - startTime) / 1_000_000;
+                    return new ProbeResult(host, Collections.singletonList(scheme), response.statusCode,
+                                           finalUrl, latency);
+                } catch (IOException e) {
+                    boolean stale = connection != null && connection.requests > 0;
+                    drop(connection);
+                    if (!stale) {
+                        return ProbeResult.dead(host);
+                    }
+                    forceNew = true;
+                }
+            }
+            return ProbeResult.dead(host);
+        }
+        
+        private Connection plainConnection(boolean forceNew) throws IOException {
+            if (forceNew || http == null) {
+                close(http);
+                http = new Connection(connect(80));
+            }
+            return http;
+        }
+        
+        // Another name reuses the open TLS connection only when its certificate covers that name
+        private Connection tlsConnection(String host, boolean forceNew) throws IOException {
+            if (!forceNew && https != null && https.covers(host)) {
+                return https;
+            }
+            close(https);
+            https = null;
+            
+            // Any other name gets a full handshake under its own key and leaves the shared session alone
+            boolean shared = sessionCertificate == null || Connection.covers(sessionCertificate, host);
+            
+            Socket plain = connect(443);
+            try {
+                SSLSocket socket = (SSLSocket) tlsContext.getSocketFactory()
+                    .createSocket(plain, shared ? address.getHostAddress() : host, 443, true);
+                SSLParameters parameters = socket.getSSLParameters();
+                parameters.setServerNames(Collections.singletonList(new SNIHostName(host)));
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                socket.setSSLParameters(parameters);
+                
+                long handshakeStart = System.currentTimeMillis();
+                socket.startHandshake();
+                SSLSession session = socket.getSession();
+                Certificate[] chain = session.getPeerCertificates();
+                X509Certificate certificate = chain.length > 0 && chain[0] instanceof X509Certificate
+                    ? (X509Certificate) chain[0] : null;
+                if (session.getCreationTime() < handshakeStart) {
+                    resumedHandshakes.incrementAndGet();
+                } else {
+                    fullHandshakes.incrementAndGet();
+                    if (shared) {
+                        sessionCertificate = certificate;
+                    }
+                }
+                
+                https = new Connection(socket);
+                https.certificate = certificate;
+                return https;
+            } catch (IOException e) {
+                plain.close();
+                throw e;
+            }
+        }
+        
+        private Socket connect(int port) throws IOException {
+            if (deadPorts.contains(port)) {
+                throw new ConnectException("Port " + port + " refused or timed out earlier");
+            }
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(address, port), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+            } catch (IOException e) {
+                if (e instanceof ConnectException || e instanceof SocketTimeoutException) {
+                    deadPorts.add(port);
+                }
+                socket.close();
+                throw e;
+            }
+            connectionsOpened.incrementAndGet();
+            return socket;
+        }
+        
+        private void drop(Connection connection) {
+            close(connection);
+            if (connection == http) {
+                http = null;
+            }
+            if (connection == https) {
+                https = null;
+            }
+        }
+        
+        private void close(Connection connection) {
+            if (connection != null) {
+                try {
+                    connection.socket.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+    
+    private static class Connection {
+        final Socket socket;
+        final InputStream in;
+        final OutputStream out;
+        X509Certificate certificate;
+        // Completed requests; a failure on a connection that already served one means it went stale
+        int requests = 0;
+        
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+        
+        Response head(String host) throws IOException {
+            String request = "HEAD / HTTP/1.1\r\n"
+                + "Host: " + host + "\r\n"
+                + "User-Agent: SubMergeX/2.1\r\n"
+                + "Accept: */*\r\n"
+                + "Connection: keep-alive\r\n\r\n";
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            
+            // A response to HEAD never has a body, whatever Content-Length says
+            Response response = new Response();
+            String statusLine = readLine();
+            while (statusLine.startsWith("HTTP/1.1 1")) {
+                // Skip interim responses along with their headers
+                while (!readLine().isEmpty()) {
+                    // discard
+                }
+                statusLine = readLine();
+            }
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            try {
+                response.statusCode = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed status line: " + statusLine);
+            }
+            response.keepAlive = parts[0].equals("HTTP/1.1");
+            
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon <= 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Connection")) {
+                    response.keepAlive = value.equalsIgnoreCase("keep-alive")
+                        || (response.keepAlive && !value.equalsIgnoreCase("close"));
+                } else if (name.equalsIgnoreCase("Location")) {
+                    response.location = value;
+                }
+            }
+            requests++;
+            return response;
+        }
+        
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\n') {
+                    int length = line.length();
+                    return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+                }
+                if (line.length() >= MAX_HEADER_BYTES) {
+                    throw new IOException("Header line too long");
+                }
+                line.append((char) c);
+            }
+            throw new EOFException("Connection closed");
+        }
+        
+        boolean covers(String host) {
+            return certificate != null && covers(certificate, host);
+        }
+        
+        // Exact or single-label wildcard match against the dNSName SANs
+        static boolean covers(X509Certificate certificate, String host) {
+            try {
+                Collection<List<?>> names = certificate.getSubjectAlternativeNames();
+                if (names == null) {
+                    return false;
+                }
+                for (List<?> name : names) {
+                    if (name.size() >= 2 && Integer.valueOf(2).equals(name.get(0))) {
+                        String san = String.valueOf(name.get(1)).toLowerCase(Locale.ROOT);
+                        if (san.equals(host)) {
+                            return true;
+                        }
+                        int dot = host.indexOf('.');
+                        if (san.startsWith("*.") && dot > 0 && san.substring(1).equals(host.substring(dot))) {
+                            return true;
+                        }
+                    }
+                }
+            } catch (CertificateParsingException e) {
+                // Treat as not covered
+            }
+            return false;
+        }
+    }
+    
+    private static class Response {
+        int statusCode;
+        boolean keepAlive;
+        String location;
+    }
+    
+    // Called with the chain of every full TLS handshake, before it is validated
+    public void setCertificateListener(Consumer<Certificate[]> certificateListener) {
+        this.certificateListener = certificateListener;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+import java.io.*;
+
+// Pull tokenizer for JSON read straight off a stream: only the current token is held in memory,
+// so a response of any size is parsed with a fixed-size buffer. Commas are treated as separators
+// and the nesting is not validated, which is all a reader of API output needs.
+public class JsonTokenizer {
+    public enum Token { BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, LITERAL, END_DOCUMENT }
+    
+    // A single string longer than this is not something any caller wants in memory
+    private static final int MAX_TOKEN_LENGTH = 1 << 20;
+    
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private final StringBuilder text = new StringBuilder();
+    private boolean skipping = false;
+    
+    public JsonTokenizer(Reader in) {
+        this.in = in;
+    }
+    
+    public Token next() throws IOException {
+        int c = nextSignificant();
+        switch (c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '"':
+                readString();
+                // A string followed by a colon is an object member name
+                int following = nextSignificant();
+                if (following == ':') {
+                    return Token.NAME;
+                }
+                if (following != -1) {
+                    position--;
+                }
+                return Token.STRING;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readBare(c);
+                    return Token.NUMBER;
+                }
+                if (c >= 'a' && c <= 'z') {
+                    readBare(c);
+                    return Token.LITERAL;
+                }
+                throw new IOException("Unexpected character '" + (char) c + "' in JSON");
+        }
+    }
+    
+    // Text of the last NAME, STRING, NUMBER or LITERAL token
+    public String text() {
+        return text.toString();
+    }
+    
+    // Skips the value after a NAME, including everything nested in it, without keeping its text
+    public void skipValue() throws IOException {
+        skipping = true;
+        try {
+            int depth = 0;
+            do {
+                Token token = next();
+                if (token == Token.BEGIN_ARRAY || token == Token.BEGIN_OBJECT) {
+                    depth++;
+                } else if (token == Token.END_ARRAY || token == Token.END_OBJECT) {
+                    depth--;
+                } else if (token == Token.END_DOCUMENT) {
+                    throw new EOFException("JSON ended inside a value");
+                }
+            } while (depth > 0);
+        } finally {
+            skipping = false;
+            text.setLength(0);
+        }
+    }
+    
+    // Whitespace and commas between tokens are skipped; a colon only ever follows a name
+    private int nextSignificant() throws IOException {
+        while (true) {
+            int c = read();
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t' && c != ',') {
+                return c;
+            }
+        }
+    }
+    
+    private void readString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new EOFException("JSON ended inside a string");
+            }
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                c = readEscape();
+            }
+            append((char) c);
+        }
+    }
+    
+    private int readEscape() throws IOException {
+        int c = read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                // Surrogate pairs come out as two chars, which is what a Java string holds anyway
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw new IOException("Invalid \\u escape in JSON");
+                    }
+                    value = value * 16 + digit;
+                }
+                return value;
+            case -1:
+                throw new EOFException("JSON ended inside a string");
+            default:
+                // \" \\ \/ stand for themselves
+                return c;
+        }
+    }
+    
+    private void readBare(int first) throws IOException {
+        text.setLength(0);
+        append((char) first);
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return;
+            }
+            if (!(Character.isLetterOrDigit(c) || c == '.' || c == '-' || c == '+')) {
+                position--;
+                return;
+            }
+            append((char) c);
+        }
+    }
+    
+    private void append(char c) throws IOException {
+        if (skipping) {
+            return;
+        }
+        if (text.length() >= MAX_TOKEN_LENGTH) {
+            throw new IOException("JSON token longer than " + MAX_TOKEN_LENGTH + " characters");
+        }
+        text.append(c);
+    }
+    
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
\ No newline at end of file
@@ -1,11 +1,18 @@
 import java.io.*;
 import java.net.*;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class LiveChecker {
     private static final Map<String, String> LIVE_CHECK_COMMANDS = new HashMap<>();
     
+    private static final String[] SCHEMES = {"https", "http"};
+    
     static {
         LIVE_CHECK_COMMANDS.put("httprobe", "httprobe -c 50");
         LIVE_CHECK_COMMANDS.put("httpx", "httpx -silent -threads 100");
@@ -14,6 +21,42 @@ public class LiveChecker {
     
     private int connectionTimeout = 5000;
     private int maxThreads = 50;
+    private int maxInFlight = 1000;
+    private int asyncIoThreads = 8;
+    private int maxVirtualProbes = 1000;
+    private int connectionsPerAddress = 4;
+    private int adaptiveMaxInFlight = 200;
+    private int adaptiveInitialPerAddress = 4;
+    private int adaptiveMaxPerAddress = 32;
+    private double adaptiveRatePerAddress = 20;
+    private boolean raceSchemes = false;
+    private ExecutorService raceExecutor;
+    private final Map<String, ProbeResult> probeResults = new ConcurrentHashMap<>();
+    private String dnsResolvers = DnsResolver.DEFAULT_RESOLVERS;
+    private int dnsMaxInFlight = 500;
+    private int dnsTimeout = 2000;
+    private int dnsRetries = 2;
+    private final Map<String, DnsResult> dnsResults = new ConcurrentHashMap<>();
+    private boolean wildcardFiltering = true;
+    private final List<String> wildcardZones = new ArrayList<>();
+    private Path cachePath = LivenessCache.defaultPath();
+    private LivenessCache sharedCache;
+    private int cacheTtlHours = 24;
+    // Dead hosts come back more often than live ones disappear, so they are rechecked sooner
+    private int cacheDeadTtlHours = 6;
+    private int cacheHits = 0;
+    private int cacheMisses = 0;
+    private int externalToolTimeoutSeconds = 3600;
+    private int fingerprintSampleBytes = 8192;
+    private PageGroups pageGroups;
+    private String scope;
+    private int sanMaxDepth = 2;
+    private SanHarvester sanHarvester;
+    private SSLSocketFactory harvestingSockets;
+    private ProcessSupervisor supervisor = new ProcessSupervisor();
+    // Shared with other checkers in batch mode, so their limits add up to one global limit
+    private DnsResolver sharedResolver;
+    private Semaphore probePermits;
     
     public Set<String> checkLiveSubdomains(Set<String> subdomains, Scanner scanner, String outputFolder) {
         System.out.println("\n" + "=".repeat(50));
@@ -27,18 +70,264 @@ public class LiveChecker {
             return new HashSet<>();
         }
         
-        Set<String> liveSubdomains;
+        boolean useCache = configureCache(scanner);
+        boolean dnsPrefilter = configureDnsPrefilter(scanner);
+        boolean fingerprint = configureFingerprinting(scanner);
+        // External tools never hand over the certificates they saw
+        boolean harvestSans = !isExternal(toolChoice) && configureSanHarvesting(scanner);
+        return checkLiveSubdomains(subdomains, toolChoice, useCache, dnsPrefilter, fingerprint, harvestSans);
+    }
+    
+    // Runs the check with the choices the prompts would otherwise ask for
+    public Set<String> checkLiveSubdomains(Set<String> subdomains, String toolChoice, boolean useCache,
+                                           boolean dnsPrefilter, boolean fingerprint, boolean harvestSans) {
+        Set<String> candidates = subdomains;
+        Set<String> cachedLive = new HashSet<>();
+        LivenessCache cache = !useCache ? null : sharedCache != null ? sharedCache : openCache();
+        if (cache != null) {
+            candidates = lookupCache(cache, subdomains, cachedLive);
+        }
+        Set<String> misses = candidates;
         
-        if (toolChoice.equals("httprobe") || toolChoice.equals("httpx")) {
-            liveSubdomains = checkLiveWithExternalTool(subdomains, toolChoice, outputFolder);
-        } else {
-            liveSubdomains = checkLiveWithJava(subdomains);
+        if (dnsPrefilter) {
+            candidates = filterByDns(candidates);
         }
+        pageGroups = fingerprint ? new PageGroups() : null;
+        sanHarvester = harvestSans && !isExternal(toolChoice) ? new SanHarvester(scope, subdomains) : null;
+        harvestingSockets = sanHarvester == null ? null
+            : SanHarvester.reportingContext(sanHarvester::harvest).getSocketFactory();
+        
+        Set<String> liveSubdomains = runProbes(toolChoice, candidates);
         
-        displayLiveCheckSummary(liveSubdomains, subdomains);
+        // Names from certificates seen in one round are probed in the next, up to sanMaxDepth rounds
+        for (int depth = 1; sanHarvester != null && depth <= sanMaxDepth; depth++) {
+            Set<String> harvested = sanHarvester.drainNew();
+            if (harvested.isEmpty()) {
+                break;
+            }
+            System.out.printf("\nSAN harvest round %d: %d new in-scope names from certificates\n",
+                            depth, harvested.size());
+            if (cache != null) {
+                misses.addAll(harvested);
+            }
+            Set<String> round = dnsPrefilter ? filterByDns(harvested) : harvested;
+            liveSubdomains.addAll(runProbes(toolChoice, round));
+        }
+        if (sanHarvester != null) {
+            System.out.printf("Certificate SANs added %d new subdomains\n", sanHarvester.getHarvested().size());
+        }
+        
+        if (cache != null) {
+            liveSubdomains.addAll(cachedLive);
+            updateCache(cache, misses, liveSubdomains);
+        }
+        if (fingerprint) {
+            fingerprintLiveHosts(liveSubdomains);
+        }
+        
+        Set<String> checked = subdomains;
+        if (sanHarvester != null && !sanHarvester.getHarvested().isEmpty()) {
+            checked = new HashSet<>(subdomains);
+            checked.addAll(sanHarvester.getHarvested());
+        }
+        displayLiveCheckSummary(liveSubdomains, checked);
         return liveSubdomains;
     }
     
+    private static boolean isExternal(String toolChoice) {
+        return toolChoice.equals("httprobe") || toolChoice.equals("httpx") || toolChoice.startsWith("custom:");
+    }
+    
+    private Set<String> runProbes(String toolChoice, Set<String> candidates) {
+        if (isExternal(toolChoice)) {
+            return checkLiveWithExternalTool(candidates, toolChoice);
+        } else if (toolChoice.equals("java-async")) {
+            return checkLiveWithAsync(candidates);
+        } else if (toolChoice.equals("java-virtual")) {
+            return checkLiveWithJava(candidates, true);
+        } else if (toolChoice.equals("java-grouped")) {
+            return checkLiveWithGrouped(candidates);
+        } else if (toolChoice.equals("java-adaptive")) {
+            return checkLiveWithAdaptive(candidates);
+        } else {
+            return checkLiveWithJava(candidates);
+        }
+    }
+    
+    private boolean configureSanHarvesting(Scanner scanner) {
+        if (scope == null) {
+            return false;
+        }
+        System.out.print("Harvest new " + scope + " names from TLS certificates and probe them? (y/n, default: y): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        return !(choice.equals("n") || choice.equals("no"));
+    }
+    
+    // Empty unless certificate harvesting ran
+    public Set<String> getHarvestedNames() {
+        return sanHarvester != null ? sanHarvester.getHarvested() : Collections.emptySet();
+    }
+    
+    public boolean configureFingerprinting(Scanner scanner) {
+        System.out.print("Group duplicate pages and screenshot one host per group? (y/n, default: y): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        pageGroups = choice.equals("n") || choice.equals("no") ? null : new PageGroups();
+        return pageGroups != null;
+    }
+    
+    // Probes only send HEAD requests, so each live host costs one extra GET that reads at most
+    // fingerprintSampleBytes of the page its first responding scheme serves
+    private void fingerprintLiveHosts(Set<String> liveSubdomains) {
+        System.out.printf("Fingerprinting %d live hosts (%d threads)...\n", liveSubdomains.size(), maxThreads);
+        long startTime = System.currentTimeMillis();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (String subdomain : liveSubdomains) {
+            futures.add(executor.submit(() -> fingerprintHost(subdomain)));
+        }
+        for (Future<Boolean> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Error fingerprinting host: " + e.getMessage());
+            }
+        }
+        executor.shutdown();
+        
+        long endTime = System.currentTimeMillis();
+        System.out.printf("Fingerprinting completed in %.2fs: %d distinct pages across %d live hosts\n",
+                        (endTime - startTime) / 1000.0, pageGroups.getGroupCount(), pageGroups.getHostCount());
+    }
+    
+    // Returns true when the host serves a page not seen before, i.e. it should be screenshotted
+    public boolean fingerprintHost(String subdomain) {
+        if (pageGroups == null) {
+            return true;
+        }
+        String url = ProbeResult.urls(subdomain, probeResults.get(subdomain)).get(0);
+        ResponseFingerprint fingerprint = withPermit(
+            () -> ResponseFingerprint.fetchUrl(url, connectionTimeout, fingerprintSampleBytes), null);
+        return pageGroups.add(subdomain, fingerprint);
+    }
+    
+    // Null unless fingerprinting was enabled
+    public PageGroups getPageGroups() {
+        return pageGroups;
+    }
+    
+    private boolean configureCache(Scanner scanner) {
+        System.out.print("Reuse cached results from earlier scans? (y/n, default: y): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        if (choice.equals("n") || choice.equals("no")) {
+            return false;
+        }
+        
+        cacheTtlHours = readHours(scanner, "Cache TTL for live hosts in hours", cacheTtlHours);
+        cacheDeadTtlHours = readHours(scanner, "Cache TTL for dead hosts in hours", cacheDeadTtlHours);
+        return true;
+    }
+    
+    private static int readHours(Scanner scanner, String prompt, int current) {
+        System.out.print(prompt + " (default: " + current + "): ");
+        String hours = scanner.nextLine().trim();
+        if (hours.isEmpty()) {
+            return current;
+        }
+        try {
+            int parsed = Integer.parseInt(hours);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.out.println("Invalid TTL, using " + current + " hours");
+        return current;
+    }
+    
+    // Also used to load one cache up front that several checkers then share
+    public LivenessCache openCache() {
+        LivenessCache cache = new LivenessCache(cachePath, TimeUnit.HOURS.toMillis(cacheTtlHours),
+                                                TimeUnit.HOURS.toMillis(cacheDeadTtlHours));
+        try {
+            long startTime = System.currentTimeMillis();
+            cache.load();
+            System.out.printf("Loaded %d cached hosts from %s in %.2fs\n", cache.size(), cachePath,
+                            (System.currentTimeMillis() - startTime) / 1000.0);
+            return cache;
+        } catch (IOException e) {
+            System.err.println("Could not read liveness cache: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private Set<String> lookupCache(LivenessCache cache, Set<String> subdomains, Set<String> cachedLive) {
+        long now = System.currentTimeMillis();
+        Set<String> misses = new HashSet<>();
+        
+        for (String subdomain : subdomains) {
+            ProbeResult cached = cache.getFresh(subdomain, now);
+            if (cached == null) {
+                misses.add(subdomain);
+            } else if (cached.isLive()) {
+                cachedLive.add(subdomain);
+                probeResults.put(subdomain, cached);
+            }
+        }
+        
+        cacheHits = subdomains.size() - misses.size();
+        cacheMisses = misses.size();
+        System.out.printf("Liveness cache: %d hits (%d live), %d to probe\n",
+                        cacheHits, cachedLive.size(), cacheMisses);
+        return misses;
+    }
+    
+    private void updateCache(LivenessCache cache, Set<String> probed, Set<String> liveSubdomains) {
+        long now = System.currentTimeMillis();
+        for (String subdomain : probed) {
+            ProbeResult result = probeResults.get(subdomain);
+            if (result == null || !liveSubdomains.contains(subdomain)) {
+                result = ProbeResult.dead(subdomain);
+            }
+            cache.record(result, now);
+        }
+        
+        try {
+            cache.save();
+        } catch (IOException e) {
+            System.err.println("Could not save liveness cache: " + e.getMessage());
+        }
+    }
+    
+    public Map<String, String> getReportStats() {
+        Map<String, String> stats = new LinkedHashMap<>();
+        if (cacheHits + cacheMisses > 0) {
+            stats.put("Liveness cache hits", String.valueOf(cacheHits));
+            stats.put("Liveness cache misses", String.valueOf(cacheMisses));
+        }
+        if (pageGroups != null) {
+            stats.put("Distinct live pages", String.valueOf(pageGroups.getGroupCount()));
+            stats.put("Duplicate pages skipped",
+                      String.valueOf(pageGroups.getHostCount() - pageGroups.getGroupCount()));
+        }
+        return stats;
+    }
+    
+    public void setCachePath(Path cachePath) {
+        this.cachePath = cachePath;
+    }
+    
+    // Checkers running at the same time use one instance instead of each loading the file
+    public void setCacheTtlHours(int liveHours, int deadHours) {
+        this.cacheTtlHours = liveHours;
+        this.cacheDeadTtlHours = deadHours;
+    }
+    
+    public void setSharedCache(LivenessCache sharedCache) {
+        this.sharedCache = sharedCache;
+    }
+    
     private String configureLiveCheckingTool(Scanner scanner) {
         System.out.println("Live Subdomain Checking Configuration:");
         System.out.println("=".repeat(45));
@@ -70,7 +359,7 @@ public class LiveChecker {
                         return "java";
                     }
                 case "3":
-                    return "java";
+                    return configureJavaEngine(scanner);
                 case "4":
                     return configureCustomCommand(scanner);
                 case "5":
@@ -81,6 +370,111 @@ public class LiveChecker {
         }
     }
     
+    private String configureJavaEngine(Scanner scanner) {
+        System.out.println("Java checking engines:");
+        System.out.println("1. thread pool - " + maxThreads + " blocking probes at a time");
+        System.out.println("2. async - non-blocking, up to " + maxInFlight + " probes in flight");
+        System.out.println("3. virtual threads - one virtual thread per probe, up to "
+                           + maxVirtualProbes + " at a time (Java 21+)");
+        System.out.println("4. grouped - groups names by IP and reuses keep-alive connections, "
+                           + "best when many names share a few load balancers");
+        System.out.println("5. adaptive - per-IP rate and concurrency limits that back off on 429s, resets "
+                           + "and timeouts, up to " + adaptiveMaxInFlight + " probes at a time");
+        System.out.print("Select engine (1-5, default: async): ");
+        String choice = scanner.nextLine().trim();
+        
+        // Lanes probe each name on kept-alive connections one scheme after the other
+        if (choice.equals("4")) {
+            return "java-grouped";
+        }
+        
+        System.out.print("Race https and http in parallel? (y/n, default: y): ");
+        String race = scanner.nextLine().trim().toLowerCase();
+        raceSchemes = !(race.equals("n") || race.equals("no"));
+        
+        switch (choice) {
+            case "1":
+                return "java";
+            case "3":
+                return "java-virtual";
+            case "5":
+                return "java-adaptive";
+            default:
+                return "java-async";
+        }
+    }
+    
+    private boolean configureDnsPrefilter(Scanner scanner) {
+        System.out.print("Resolve names over DNS first and drop NXDOMAIN? (y/n, default: y): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        if (choice.equals("n") || choice.equals("no")) {
+            return false;
+        }
+        
+        System.out.print("DNS resolvers (default: " + dnsResolvers + "): ");
+        String resolvers = scanner.nextLine().trim();
+        if (!resolvers.isEmpty()) {
+            dnsResolvers = resolvers;
+        }
+        
+        System.out.print("Detect wildcard DNS and drop catch-all hosts? (y/n, default: y): ");
+        String wildcard = scanner.nextLine().trim().toLowerCase();
+        wildcardFiltering = !(wildcard.equals("n") || wildcard.equals("no"));
+        return true;
+    }
+    
+    private Set<String> filterByDns(Set<String> subdomains) {
+        if (sharedResolver != null) {
+            System.out.printf("Resolving %d names via the shared resolver...\n", subdomains.size());
+        } else {
+            System.out.printf("Resolving %d names via %s (%d in flight)...\n",
+                            subdomains.size(), dnsResolvers, dnsMaxInFlight);
+        }
+        long startTime = System.currentTimeMillis();
+        
+        Set<String> remaining = new HashSet<>();
+        try (DnsResolver owned = sharedResolver == null ? new DnsResolver(DnsResolver.parseResolvers(dnsResolvers),
+                                                                          dnsMaxInFlight, dnsTimeout, dnsRetries) : null) {
+            DnsResolver resolver = owned != null ? owned : sharedResolver;
+            Map<String, DnsResult> results = resolver.resolveAll(subdomains);
+            dnsResults.putAll(results);
+            
+            // Only a definite NXDOMAIN drops a name; timeouts and failures still get probed
+            Map<DnsResult.Status, Integer> counts = new TreeMap<>();
+            for (String subdomain : subdomains) {
+                DnsResult result = results.get(subdomain);
+                if (result != null) {
+                    counts.merge(result.getStatus(), 1, Integer::sum);
+                }
+                if (result == null || !result.isNxDomain()) {
+                    remaining.add(subdomain);
+                }
+            }
+            
+            long endTime = System.currentTimeMillis();
+            System.out.printf("DNS pre-filter completed in %.2fs: %s, %d of %d names left to probe\n",
+                            (endTime - startTime) / 1000.0, counts, remaining.size(), subdomains.size());
+            
+            if (wildcardFiltering) {
+                WildcardDetector detector = new WildcardDetector(resolver, connectionTimeout);
+                remaining = detector.filter(remaining, results);
+                wildcardZones.addAll(detector.getWildcardZones());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("DNS pre-filter unavailable: " + e.getMessage());
+            return subdomains;
+        }
+        return remaining;
+    }
+    
+    public List<String> getWildcardZones() {
+        return wildcardZones;
+    }
+    
+    public Map<String, DnsResult> getDnsResults() {
+        return dnsResults;
+    }
+    
     private String configureCustomCommand(Scanner scanner) {
         System.out.print("Enter custom command (subdomains will be piped to it): ");
         String command = scanner.nextLine().trim();
@@ -103,113 +497,521 @@ public class LiveChecker {
         }
     }
     
-    private Set<String> checkLiveWithExternalTool(Set<String> subdomains, String tool, String outputFolder) {
+    private Set<String> checkLiveWithExternalTool(Set<String> subdomains, String tool) {
+        try {
+            return checkLiveWithExternalTool(subdomains.iterator(), tool, null);
+        } catch (IOException e) {
+            System.err.println("Error during external tool checking: " + e.getMessage());
+            System.out.println("Falling back to Java-based checking...");
+            return checkLiveWithJava(subdomains);
+        }
+    }
+    
+    // Starts the tool directly and writes hosts to its stdin as the iterator yields them, so it
+    // probes the first host straight away; the iterator may block while discovery is running
+    public Set<String> checkLiveWithExternalTool(Iterator<String> hosts, String tool, Consumer<String> onLive)
+            throws IOException {
+        List<String> command = externalCommand(tool);
         System.out.println("Checking live subdomains with " + tool + "...");
-        Set<String> liveSubdomains = new HashSet<>();
+        System.out.println("Running: " + String.join(" ", command));
         
-        try {
-            String tempFile = outputFolder + "/temp_subdomains.txt";
-            try (PrintWriter writer = new PrintWriter(tempFile)) {
-                for (String subdomain : subdomains) {
-                    writer.println(subdomain);
-                }
+        Set<String> liveSubdomains = ConcurrentHashMap.newKeySet();
+        int[] fed = {0};
+        Iterator<String> counted = new Iterator<String>() {
+            public boolean hasNext() {
+                return hosts.hasNext();
             }
             
-            String command = LIVE_CHECK_COMMANDS.get(tool);
-            String fullCommand = "cat " + tempFile + " | " + command;
-            System.out.println("Running: " + fullCommand);
-            
-            long startTime = System.currentTimeMillis();
-            
-            ProcessBuilder builder = new ProcessBuilder("bash", "-c", fullCommand);
-            Process process = builder.start();
-            
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    line = line.trim();
-                    if (!line.isEmpty()) {
-                        String domain = line.replaceAll("^https?://", "").split("/")[0];
-                        liveSubdomains.add(domain);
-                        System.out.println("Live: " + line);
+            public String next() {
+                fed[0]++;
+                return hosts.next();
+            }
+        };
+        
+        ProcessSupervisor.Result run = supervisor.run(tool, new ProcessBuilder(command),
+            externalToolTimeoutSeconds * 1000L, counted,
+            line -> {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    String host = line.replaceAll("^https?://", "").split("/")[0];
+                    String domain = Objects.requireNonNullElse(DomainName.normalize(host), host);
+                    recordExternalResult(domain, line);
+                    System.out.println("Live: " + line);
+                    if (liveSubdomains.add(domain) && onLive != null) {
+                        onLive.accept(domain);
                     }
                 }
+            },
+            line -> {
+                if (!line.trim().isEmpty()) {
+                    System.out.println("  " + line);
+                }
+            });
+        
+        if (run.getError() != null) {
+            throw new IOException(run.getError());
+        }
+        if (run.isTimedOut()) {
+            System.out.printf("%s timed out %ds after its input ended, keeping the results so far\n",
+                            tool, externalToolTimeoutSeconds);
+        }
+        System.out.printf("Live check of %d hosts completed in %.2fs (%.2fs cpu)\n",
+                        fed[0], run.getWallSeconds(), run.getCpuSeconds());
+        return liveSubdomains;
+    }
+    
+    // Built-in tools run without a shell; a custom command may contain pipes, so it gets one
+    private List<String> externalCommand(String tool) {
+        if (tool.startsWith("custom:")) {
+            return ProcessSupervisor.shell(tool.substring("custom:".length()));
+        }
+        return Arrays.asList(LIVE_CHECK_COMMANDS.get(tool).split("\\s+"));
+    }
+    
+    public boolean isExternalToolAvailable(String tool) {
+        return LIVE_CHECK_COMMANDS.containsKey(tool) && !tool.equals("custom") && isToolInstalled(tool);
+    }
+    
+    // httprobe and httpx print one URL per responding scheme
+    private void recordExternalResult(String domain, String line) {
+        String scheme = line.startsWith("https://") ? "https" : line.startsWith("http://") ? "http" : null;
+        if (scheme == null) {
+            return;
+        }
+        probeResults.merge(domain, new ProbeResult(domain, Collections.singletonList(scheme)),
+            (existing, added) -> ProbeResult.combine(domain, Arrays.asList(existing, added)));
+    }
+    
+    private Set<String> checkLiveWithJava(Set<String> subdomains) {
+        return checkLiveWithJava(subdomains, false);
+    }
+    
+    private Set<String> checkLiveWithJava(Set<String> subdomains, boolean virtualThreads) {
+        ExecutorService executor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualThreads && executor == null) {
+            System.out.println("Virtual threads need Java 21+, falling back to the thread pool");
+        }
+        
+        int concurrency = executor != null ? maxVirtualProbes : maxThreads;
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(maxThreads);
+            System.out.printf("Checking live subdomains with Java HTTP (%d threads)...\n", maxThreads);
+        } else {
+            System.out.printf("Checking live subdomains with Java HTTP (virtual threads, %d concurrent)...\n",
+                            concurrency);
+        }
+        
+        Set<String> liveSubdomains = ConcurrentHashMap.newKeySet();
+        // Submission blocks while all slots are busy, so pending work never grows with the input
+        Semaphore slots = new Semaphore(concurrency);
+        
+        long startTime = System.currentTimeMillis();
+        
+        try {
+            for (String subdomain : subdomains) {
+                slots.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            if (isSubdomainLive(subdomain)) {
+                                liveSubdomains.add(subdomain);
+                                System.out.printf("Live: %s\n", subdomain);
+                            }
+                        } catch (Exception e) {
+                            System.err.println("Error during live check: " + e.getMessage());
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    throw e;
+                }
             }
             
-            process.waitFor();
-            long endTime = System.currentTimeMillis();
-            
-            new File(tempFile).delete();
-            
-            System.out.printf("Live check completed in %.2fs\n", (endTime - startTime) / 1000.0);
-            
-        } catch (Exception e) {
-            System.err.println("Error during external tool checking: " + e.getMessage());
-            System.out.println("Falling back to Java-based checking...");
-            return checkLiveWithJava(subdomains);
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            System.err.println("Live check interrupted");
         }
         
+        long endTime = System.currentTimeMillis();
+        printThroughput(subdomains.size(), endTime - startTime);
+        
         return liveSubdomains;
     }
     
-    private Set<String> checkLiveWithJava(Set<String> subdomains) {
-        System.out.println("Checking live subdomains with Java HTTP...");
-        Set<String> liveSubdomains = Collections.synchronizedSet(new HashSet<>());
-        ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
-        List<Future<Void>> futures = new ArrayList<>();
+    private ExecutorService newVirtualThreadExecutor() {
+        // Looked up reflectively so the tool still builds and runs on Java 11-20
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+    
+    private void printThroughput(int hosts, long elapsedMillis) {
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        double seconds = elapsedMillis / 1000.0;
+        System.out.printf("Live check completed in %.2fs (%.1f hosts/s, heap in use: %d MB)\n",
+                        seconds, seconds > 0 ? hosts / seconds : hosts, usedMb);
+    }
+    
+    private Set<String> checkLiveWithAsync(Set<String> subdomains) {
+        System.out.printf("Checking live subdomains with async Java HTTP (%d in flight, %d I/O threads)...\n",
+                        maxInFlight, asyncIoThreads);
+        AsyncProbeEngine engine = new AsyncProbeEngine(maxInFlight, asyncIoThreads, connectionTimeout);
+        engine.setRaceSchemes(raceSchemes);
+        if (sanHarvester != null) {
+            engine.setCertificateListener(sanHarvester::harvest);
+        }
+        engine.setKnownResults(dnsResults);
+        DnsResolver owned = null;
+        if (sharedResolver == null && !dnsResults.keySet().containsAll(subdomains)) {
+            try {
+                owned = new DnsResolver(DnsResolver.parseResolvers(dnsResolvers), dnsMaxInFlight, dnsTimeout, dnsRetries);
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Async DNS unavailable, probing every name: " + e.getMessage());
+            }
+        }
+        engine.setResolver(owned != null ? owned : sharedResolver);
         
         long startTime = System.currentTimeMillis();
+        Set<String> liveSubdomains;
+        try {
+            Map<String, ProbeResult> results = engine.checkAll(subdomains);
+            probeResults.putAll(results);
+            liveSubdomains = new HashSet<>(results.keySet());
+        } finally {
+            engine.close();
+            if (owned != null) {
+                owned.close();
+            }
+        }
+        long endTime = System.currentTimeMillis();
+        printThroughput(subdomains.size(), endTime - startTime);
         
+        return liveSubdomains;
+    }
+    
+    private Set<String> checkLiveWithGrouped(Set<String> subdomains) {
+        System.out.printf("Checking live subdomains with IP-grouped Java HTTP (%d lanes, up to %d per address)...\n",
+                        maxThreads, connectionsPerAddress);
+        GroupedProbeEngine engine = new GroupedProbeEngine(maxThreads, connectionsPerAddress, connectionTimeout);
+        if (sanHarvester != null) {
+            engine.setCertificateListener(sanHarvester::harvest);
+        }
+        
+        long startTime = System.currentTimeMillis();
+        Map<String, ProbeResult> results = engine.checkAll(subdomains, dnsResults);
+        probeResults.putAll(results);
+        long endTime = System.currentTimeMillis();
+        printThroughput(subdomains.size(), endTime - startTime);
+        
+        return new HashSet<>(results.keySet());
+    }
+    
+    // Probes to one address share its limits; probes to unrelated addresses only share the global cap
+    private Set<String> checkLiveWithAdaptive(Set<String> subdomains) {
+        System.out.printf("Checking live subdomains with adaptive Java HTTP (%d in flight, %d-%d per address, "
+                        + "%.0f req/s per address)...\n", adaptiveMaxInFlight, adaptiveInitialPerAddress,
+                        adaptiveMaxPerAddress, adaptiveRatePerAddress);
+        Set<String> liveSubdomains = ConcurrentHashMap.newKeySet();
+        AdaptiveScheduler scheduler = new AdaptiveScheduler(adaptiveMaxInFlight, adaptiveInitialPerAddress,
+                                                            adaptiveMaxPerAddress, adaptiveRatePerAddress);
+        
+        long startTime = System.currentTimeMillis();
+        try {
+            Map<String, String> addresses = resolveAddresses(subdomains);
+            for (String subdomain : subdomains) {
+                submitAdaptive(scheduler, addresses.get(subdomain), subdomain, true, liveSubdomains);
+            }
+            scheduler.awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Live check interrupted");
+        } finally {
+            scheduler.close();
+        }
+        long endTime = System.currentTimeMillis();
+        printThroughput(subdomains.size(), endTime - startTime);
+        
+        System.out.printf("%d addresses, %d backoffs\n", scheduler.getDestinationCount(), scheduler.getBackoffCount());
+        for (String line : scheduler.describeThrottled(5)) {
+            System.out.println("  " + line);
+        }
+        return liveSubdomains;
+    }
+    
+    // A host that was only turned away for going too fast goes to the back of its queue once more
+    private void submitAdaptive(AdaptiveScheduler scheduler, String address, String subdomain, boolean retry,
+                                Set<String> liveSubdomains) {
+        scheduler.submit(address, () -> {
+            List<AdaptiveScheduler.Signal> signals = Collections.synchronizedList(new ArrayList<>());
+            ProbeResult result = probeSubdomain(subdomain, signals::add);
+            AdaptiveScheduler.Signal signal;
+            synchronized (signals) {
+                signal = AdaptiveScheduler.worst(signals);
+            }
+            
+            if (result.isLive()) {
+                liveSubdomains.add(subdomain);
+                System.out.printf("Live: %s\n", subdomain);
+            } else if (retry && signal == AdaptiveScheduler.Signal.BACKOFF) {
+                submitAdaptive(scheduler, address, subdomain, false, liveSubdomains);
+                return signal;
+            }
+            probeResults.put(subdomain, result);
+            return signal;
+        });
+    }
+    
+    // Addresses from the DNS pre-filter are reused; a name that does not resolve is its own destination
+    private Map<String, String> resolveAddresses(Set<String> subdomains) throws InterruptedException {
+        Map<String, String> addresses = new ConcurrentHashMap<>();
+        List<Callable<Void>> lookups = new ArrayList<>();
         for (String subdomain : subdomains) {
-            Future<Void> future = executor.submit(() -> {
-                if (isSubdomainLive(subdomain)) {
-                    liveSubdomains.add(subdomain);
-                    System.out.printf("Live: %s\n", subdomain);
+            DnsResult dnsResult = dnsResults.get(subdomain);
+            if (dnsResult != null && dnsResult.isResolved() && !dnsResult.getAddresses().isEmpty()) {
+                addresses.put(subdomain, dnsResult.getAddresses().get(0));
+                continue;
+            }
+            lookups.add(() -> {
+                try {
+                    addresses.put(subdomain, InetAddress.getByName(subdomain).getHostAddress());
+                } catch (UnknownHostException e) {
+                    addresses.put(subdomain, subdomain);
                 }
                 return null;
             });
-            futures.add(future);
         }
         
-        for (Future<Void> future : futures) {
+        if (!lookups.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(maxThreads);
             try {
-                future.get();
-            } catch (Exception e) {
-                System.err.println("Error during live check: " + e.getMessage());
+                executor.invokeAll(lookups);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return addresses;
+    }
+    
+    public boolean isSubdomainLive(String subdomain) {
+        ProbeResult result = probeSubdomain(subdomain);
+        probeResults.put(subdomain, result);
+        return result.isLive();
+    }
+    
+    public ProbeResult probeSubdomain(String subdomain) {
+        return probeSubdomain(subdomain, null);
+    }
+    
+    // The feedback consumer, when given, hears how each request to the host went
+    private ProbeResult probeSubdomain(String subdomain, Consumer<AdaptiveScheduler.Signal> feedback) {
+        if (raceSchemes) {
+            return raceSchemes(subdomain, feedback);
+        }
+        
+        for (String scheme : SCHEMES) {
+            ProbeResult response = probeScheme(scheme, subdomain, null, null, feedback);
+            if (response.isLive()) {
+                return response;
             }
         }
+        return ProbeResult.dead(subdomain);
+    }
+    
+    private ProbeResult raceSchemes(String subdomain, Consumer<AdaptiveScheduler.Signal> feedback) {
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        List<ProbeResult> responded = Collections.synchronizedList(new ArrayList<>());
+        Map<String, HttpURLConnection> connections = new ConcurrentHashMap<>();
+        CountDownLatch remaining = new CountDownLatch(SCHEMES.length);
         
-        executor.shutdown();
-        long endTime = System.currentTimeMillis();
+        for (String scheme : SCHEMES) {
+            raceExecutor().execute(() -> {
+                try {
+                    ProbeResult response = probeScheme(scheme, subdomain, connections, winner, feedback);
+                    if (response.isLive()) {
+                        responded.add(response);
+                        winner.complete(scheme);
+                    }
+                } finally {
+                    remaining.countDown();
+                    if (remaining.getCount() == 0) {
+                        winner.complete(null);
+                    }
+                }
+            });
+        }
         
-        System.out.printf("Live check completed in %.2fs\n", (endTime - startTime) / 1000.0);
+        String first = winner.join();
+        if (first != null) {
+            // Abort the slower scheme instead of waiting out its timeout. One that registers after
+            // this sees the winner itself and gives up before sending anything
+            connections.forEach((scheme, connection) -> {
+                if (!scheme.equals(first)) {
+                    connection.disconnect();
+                }
+            });
+        }
         
-        return liveSubdomains;
+        synchronized (responded) {
+            return ProbeResult.combine(subdomain, responded);
+        }
     }
     
-    private boolean isSubdomainLive(String subdomain) {
-        String[] protocols = {"https://", "http://"};
-        
-        for (String protocol : protocols) {
-            try {
-                URL url = new URL(protocol + subdomain);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("HEAD");
-                connection.setConnectTimeout(connectionTimeout);
-                connection.setReadTimeout(connectionTimeout);
-                connection.setInstanceFollowRedirects(true);
-                connection.setRequestProperty("User-Agent", "SubMergeX/2.1");
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode >= 200 && responseCode < 400) {
-                    return true;
+    // Each HTTP request takes a permit of its own, so a host costs as many permits as requests
+    // it gets, whether the schemes are tried in turn or raced
+    private ProbeResult probeScheme(String scheme, String subdomain, Map<String, HttpURLConnection> connections,
+                                    CompletableFuture<String> winner, Consumer<AdaptiveScheduler.Signal> feedback) {
+        return withPermit(() -> requestScheme(scheme, subdomain, connections, winner, feedback),
+                          ProbeResult.dead(subdomain));
+    }
+    
+    // Runs the request under one of the shared permits, if any; interrupted while waiting, it is skipped
+    private <T> T withPermit(Supplier<T> request, T skipped) {
+        Semaphore permits = probePermits;
+        if (permits == null) {
+            return request.get();
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return skipped;
+        }
+        try {
+            return request.get();
+        } finally {
+            permits.release();
+        }
+    }
+    
+    // In a race, connections and winner are shared with the other scheme
+    private ProbeResult requestScheme(String scheme, String subdomain, Map<String, HttpURLConnection> connections,
+                                      CompletableFuture<String> winner, Consumer<AdaptiveScheduler.Signal> feedback) {
+        long startTime = System.nanoTime();
+        try {
+            URL url = URI.create(scheme + "://" + subdomain).toURL();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            // Registered before any I/O, then the winner is checked, so a decided race never
+            // misses this connection; this one may still have waited for a permit meanwhile
+            if (connections != null) {
+                connections.put(scheme, connection);
+                if (winner.isDone()) {
+                    return ProbeResult.dead(subdomain);
+                }
+            }
+            connection.setRequestMethod("HEAD");
+            connection.setConnectTimeout(connectionTimeout);
+            connection.setReadTimeout(connectionTimeout);
+            connection.setInstanceFollowRedirects(true);
+            connection.setRequestProperty("User-Agent", "SubMergeX/2.1");
+            // The certificate is read during the handshake, so hosts that fail validation or are
+            // not live still give away their names
+            if (harvestingSockets != null && connection instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(harvestingSockets);
+            }
+            
+            // disconnect() cannot abort a connect or handshake in progress, so a loser still
+            // connecting when the race was decided stops here instead of waiting for a response
+            if (winner != null) {
+                connection.connect();
+                if (winner.isDone()) {
+                    connection.disconnect();
+                    return ProbeResult.dead(subdomain);
                 }
-            } catch (Exception e) {
-                // Continue to next protocol
             }
+            int responseCode = connection.getResponseCode();
+            if (feedback != null) {
+                feedback.accept(AdaptiveScheduler.classify(responseCode));
+            }
+            if (responseCode < 200 || responseCode >= 400) {
+                return ProbeResult.dead(subdomain);
+            }
+            
+            // Redirects to another scheme are not followed, so take them from the Location header
+            String finalUrl = connection.getURL().toString();
+            String location = connection.getHeaderField("Location");
+            if (responseCode >= 300 && location != null) {
+                try {
+                    finalUrl = URI.create(finalUrl).resolve(location).toString();
+                } catch (IllegalArgumentException e) {
+                    // Keep the last URL that was actually requested
+                }
+            }
+            long latency = (System.nanoTime() - startTime) / 1_000_000;
+            return new ProbeResult(subdomain, Collections.singletonList(scheme), responseCode, finalUrl, latency);
+        } catch (Exception e) {
+            if (feedback != null) {
+                feedback.accept(AdaptiveScheduler.classify(e));
+            }
+            return ProbeResult.dead(subdomain);
         }
-        return false;
+    }
+    
+    private synchronized ExecutorService raceExecutor() {
+        if (raceExecutor == null) {
+            raceExecutor = newVirtualThreadExecutor();
+            if (raceExecutor == null) {
+                raceExecutor = Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "scheme-race");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+        return raceExecutor;
+    }
+    
+    public Map<String, ProbeResult> getProbeResults() {
+        return probeResults;
+    }
+    
+    // The apex domain; certificate names outside it are ignored
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+    
+    public void setSanMaxDepth(int sanMaxDepth) {
+        this.sanMaxDepth = sanMaxDepth;
+    }
+    
+    // Global cap, starting and largest concurrency per address, and requests per second per address
+    public void setAdaptiveLimits(int maxInFlight, int initialPerAddress, int maxPerAddress, double ratePerAddress) {
+        this.adaptiveMaxInFlight = maxInFlight;
+        this.adaptiveInitialPerAddress = initialPerAddress;
+        this.adaptiveMaxPerAddress = maxPerAddress;
+        this.adaptiveRatePerAddress = ratePerAddress;
+    }
+    
+    public void setRaceSchemes(boolean raceSchemes) {
+        this.raceSchemes = raceSchemes;
+    }
+    
+    public void setExternalToolTimeoutSeconds(int externalToolTimeoutSeconds) {
+        this.externalToolTimeoutSeconds = externalToolTimeoutSeconds;
+    }
+    
+    public void setProcessSupervisor(ProcessSupervisor supervisor) {
+        this.supervisor = supervisor;
+    }
+    
+    // Used for the DNS pre-filter instead of a resolver of its own, which is then left open
+    public void setSharedResolver(DnsResolver sharedResolver) {
+        this.sharedResolver = sharedResolver;
+    }
+    
+    // Every HTTP request of the thread pool, virtual thread and adaptive engines, and every
+    // fingerprint GET, takes a permit; the async and grouped engines keep their own limits
+    public void setProbePermits(Semaphore probePermits) {
+        this.probePermits = probePermits;
     }
     
     private void displayLiveCheckSummary(Set<String> liveSubdomains, Set<String> totalSubdomains) {
@@ -225,6 +1027,8 @@ public class LiveChecker {
             System.out.println();
         }
         
+        displaySchemeBreakdown(liveSubdomains);
+        
         if (liveSubdomains.size() <= 15) {
             System.out.println("\nLive subdomains:");
             liveSubdomains.stream().sorted().forEach(s -> System.out.println("  • " + s));
@@ -235,4 +1039,24 @@ public class LiveChecker {
             System.out.println("  ... and " + (liveSubdomains.size() - 15) + " more");
         }
     }
+    
+    private void displaySchemeBreakdown(Set<String> liveSubdomains) {
+        Map<String, Integer> counts = new TreeMap<>();
+        Map<Integer, Integer> statuses = new TreeMap<>();
+        for (String subdomain : liveSubdomains) {
+            ProbeResult result = probeResults.get(subdomain);
+            if (result != null && result.isLive()) {
+                counts.merge(String.join("+", result.getSchemes()), 1, Integer::sum);
+                if (result.getStatusCode() > 0) {
+                    statuses.merge(result.getStatusCode(), 1, Integer::sum);
+                }
+            }
+        }
+        if (!counts.isEmpty()) {
+            System.out.println("Responding schemes: " + counts);
+        }
+        if (!statuses.isEmpty()) {
+            System.out.println("Status codes: " + statuses);
+        }
+    }
 }
\ No newline at end of file
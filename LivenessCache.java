@@ -0,0 +1,190 @@
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class LivenessCache {
+    private static final int MAGIC = 0x534D584C; // "SMXL"
+    private static final int VERSION = 1;
+    
+    private static final int FLAG_LIVE = 1;
+    private static final int FLAG_HTTPS = 2;
+    private static final int FLAG_HTTP = 4;
+    
+    // File locks exclude other processes only, so scans in the same JVM queue on these first
+    private static final Map<Path, ReentrantLock> PATH_LOCKS = new ConcurrentHashMap<>();
+    
+    private final Path path;
+    private final long liveTtlMillis;
+    private final long deadTtlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry> updates = new ConcurrentHashMap<>();
+    
+    public LivenessCache(Path path, long liveTtlMillis, long deadTtlMillis) {
+        this.path = path;
+        this.liveTtlMillis = liveTtlMillis;
+        this.deadTtlMillis = deadTtlMillis;
+    }
+    
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".submergex", "liveness.cache");
+    }
+    
+    public void load() throws IOException {
+        if (Files.exists(path)) {
+            withLock(() -> readInto(entries));
+        }
+    }
+    
+    // Returns the cached result if it is still within its TTL, otherwise null
+    public ProbeResult getFresh(String host, long now) {
+        Entry entry = entries.get(host);
+        if (entry == null) {
+            return null;
+        }
+        long ttl = entry.isLive() ? liveTtlMillis : deadTtlMillis;
+        if (now - entry.timestamp > ttl) {
+            return null;
+        }
+        return entry.toProbeResult(host);
+    }
+    
+    public void record(ProbeResult result, long now) {
+        int flags = 0;
+        if (result.isLive()) {
+            flags |= FLAG_LIVE;
+        }
+        if (result.getSchemes().contains("https")) {
+            flags |= FLAG_HTTPS;
+        }
+        if (result.getSchemes().contains("http")) {
+            flags |= FLAG_HTTP;
+        }
+        Entry entry = new Entry((byte) flags, now);
+        entries.put(result.getHost(), entry);
+        updates.put(result.getHost(), entry);
+    }
+    
+    // Merges this run's results into whatever is on disk now, so concurrent scans never lose each other's entries
+    public void save() throws IOException {
+        if (updates.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        
+        withLock(() -> {
+            // Other scans sharing this instance may record while the file is written
+            Map<String, Entry> saving = new HashMap<>(updates);
+            Map<String, Entry> merged = new HashMap<>();
+            if (Files.exists(path)) {
+                readInto(merged);
+            }
+            for (Map.Entry<String, Entry> update : saving.entrySet()) {
+                Entry existing = merged.get(update.getKey());
+                if (existing == null || existing.timestamp <= update.getValue().timestamp) {
+                    merged.put(update.getKey(), update.getValue());
+                }
+            }
+            
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(merged.size());
+                for (Map.Entry<String, Entry> entry : merged.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeByte(entry.getValue().flags);
+                    out.writeLong(entry.getValue().timestamp);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            saving.forEach(updates::remove);
+        });
+    }
+    
+    private void readInto(Map<String, Entry> target) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring liveness cache with unknown format: " + path);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String host = in.readUTF();
+                byte flags = in.readByte();
+                long timestamp = in.readLong();
+                target.put(host, new Entry(flags, timestamp));
+            }
+        } catch (EOFException e) {
+            System.err.println("Liveness cache is truncated, using the entries read so far: " + path);
+        }
+    }
+    
+    // A second channel.lock() on the same file from this JVM would throw
+    // OverlappingFileLockException instead of waiting, hence the JVM-wide lock around it
+    private void withLock(LockedAction action) throws IOException {
+        ReentrantLock jvmLock = PATH_LOCKS.computeIfAbsent(path.toAbsolutePath().normalize(), p -> new ReentrantLock());
+        jvmLock.lock();
+        try (FileChannel channel = openLockChannel()) {
+            FileLock lock = channel.lock();
+            try {
+                action.run();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            jvmLock.unlock();
+        }
+    }
+    
+    private interface LockedAction {
+        void run() throws IOException;
+    }
+    
+    private FileChannel openLockChannel() throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path lockPath = path.resolveSibling(path.getFileName() + ".lock");
+        return FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    private static class Entry {
+        final byte flags;
+        final long timestamp;
+        
+        Entry(byte flags, long timestamp) {
+            this.flags = flags;
+            this.timestamp = timestamp;
+        }
+        
+        boolean isLive() {
+            return (flags & FLAG_LIVE) != 0;
+        }
+        
+        ProbeResult toProbeResult(String host) {
+            List<String> schemes = new ArrayList<>();
+            if ((flags & FLAG_HTTPS) != 0) {
+                schemes.add("https");
+            }
+            if ((flags & FLAG_HTTP) != 0) {
+                schemes.add("http");
+            }
+            if (isLive() && schemes.isEmpty()) {
+                schemes.add("https");
+                schemes.add("http");
+            }
+            return new ProbeResult(host, isLive() ? schemes : Collections.emptyList());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+import java.util.*;
+
+public class PageGroups {
+    // Groups keyed by status and title; a bucket rarely holds more than a handful of groups
+    private final Map<String, List<Group>> buckets = new HashMap<>();
+    private final List<Group> groups = new ArrayList<>();
+    private int hostCount = 0;
+    
+    // Returns true when the host starts a new group and so should be screenshotted
+    public synchronized boolean add(String host, ResponseFingerprint fingerprint) {
+        hostCount++;
+        if (fingerprint == null) {
+            // Nothing to compare against, so the host stands on its own
+            groups.add(new Group(host, null));
+            return true;
+        }
+        
+        String key = fingerprint.getStatusCode() + "\t" + fingerprint.getTitle();
+        List<Group> bucket = buckets.computeIfAbsent(key, k -> new ArrayList<>());
+        for (Group group : bucket) {
+            if (matches(group.fingerprint, fingerprint)) {
+                group.members.add(host);
+                return false;
+            }
+        }
+        
+        Group group = new Group(host, fingerprint);
+        bucket.add(group);
+        groups.add(group);
+        return true;
+    }
+    
+    // Untitled pages (APIs, blank 200s) only collapse when the sampled body is identical;
+    // titled pages may differ a little, since login and parking pages often echo the host
+    private static boolean matches(ResponseFingerprint representative, ResponseFingerprint candidate) {
+        if (representative.getTitle().isEmpty()) {
+            return representative.equals(candidate);
+        }
+        return representative.isSimilarTo(candidate);
+    }
+    
+    public synchronized List<String> getRepresentatives() {
+        List<String> representatives = new ArrayList<>();
+        for (Group group : groups) {
+            representatives.add(group.members.get(0));
+        }
+        return representatives;
+    }
+    
+    // Largest groups first; members are in the order they were added
+    public synchronized List<Group> getGroups() {
+        List<Group> sorted = new ArrayList<>();
+        for (Group group : groups) {
+            sorted.add(group.copy());
+        }
+        sorted.sort((a, b) -> Integer.compare(b.members.size(), a.members.size()));
+        return sorted;
+    }
+    
+    public synchronized int getGroupCount() {
+        return groups.size();
+    }
+    
+    public synchronized int getHostCount() {
+        return hostCount;
+    }
+    
+    public static class Group {
+        private final List<String> members = new ArrayList<>();
+        private final ResponseFingerprint fingerprint;
+        
+        Group(String representative, ResponseFingerprint fingerprint) {
+            this.members.add(representative);
+            this.fingerprint = fingerprint;
+        }
+        
+        Group copy() {
+            Group copy = new Group(members.get(0), fingerprint);
+            copy.members.addAll(members.subList(1, members.size()));
+            return copy;
+        }
+        
+        // The first member is the one that gets screenshotted
+        public List<String> getMembers() {
+            return Collections.unmodifiableList(members);
+        }
+        
+        // Null when the page could not be fetched
+        public ResponseFingerprint getFingerprint() {
+            return fingerprint;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,251 @@
+import java.util.*;
+
+// Guesses names that have not been found from the ones that have: api-dev.example.com suggests
+// api-dev2, api-staging, dev-api and dev.api-dev. Candidates are made on demand in tiers, most
+// likely first, and within a tier the words the found names use most are tried first, so the
+// resolver can stop anywhere in a space far larger than memory and still have tried the best ones.
+public class PermutationEngine implements Iterator<String> {
+    // Tried after the words the found names already use
+    private static final List<String> COMMON_TOKENS = Arrays.asList(
+        "dev", "test", "staging", "stage", "prod", "qa", "uat", "beta", "demo", "preprod", "sandbox",
+        "int", "internal", "corp", "admin", "api", "app", "web", "old", "new", "v1", "v2", "backup",
+        "vpn", "mail", "cdn", "static", "portal", "auth", "eu", "us", "uk", "asia");
+    // Neighbouring numbers come first: staging2 is far more likely to have a staging3 than a staging9
+    private static final int[] OFFSETS = {1, -1, 2, -2, 3, -3, 4, 5};
+    
+    private enum Tier { NUMBERS, SWAP, AFFIX, INSERT }
+    
+    private final String domain;
+    private final Collection<String> known;
+    // Labels left of the domain for every found name, fewest labels first
+    private final List<String[]> names = new ArrayList<>();
+    private final List<String> tokens;
+    private final Deque<String> ready = new ArrayDeque<>();
+    private final List<String> scratch = new ArrayList<>();
+    
+    // 32MB; past a few tens of millions of candidates it starts to skip some new ones
+    private BloomFilter seen = new BloomFilter(1L << 28, 3);
+    private int maxTokens = 100;
+    private long limit = Long.MAX_VALUE;
+    
+    private int tier = 0;
+    private int rank = 0;
+    private int nameIndex = 0;
+    private long emitted = 0;
+    private long duplicates = 0;
+    
+    // known is only read, so it can be the live set that new names are still being added to
+    public PermutationEngine(String domain, Collection<String> known) {
+        this.domain = domain;
+        this.known = known;
+        
+        String suffix = "." + domain;
+        Map<String, Integer> counts = new HashMap<>();
+        for (String name : known) {
+            if (!name.endsWith(suffix)) {
+                continue;
+            }
+            String[] labels = name.substring(0, name.length() - suffix.length()).split("\\.");
+            names.add(labels);
+            for (String label : labels) {
+                for (String part : label.split("-")) {
+                    String token = stripDigits(part);
+                    if (token.length() >= 2) {
+                        counts.merge(token, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        names.sort(Comparator.comparingInt(labels -> labels.length));
+        
+        List<String> observed = new ArrayList<>(counts.keySet());
+        observed.sort((a, b) -> counts.get(b).equals(counts.get(a)) ? a.compareTo(b) : counts.get(b) - counts.get(a));
+        tokens = new ArrayList<>(observed);
+        for (String token : COMMON_TOKENS) {
+            if (!counts.containsKey(token)) {
+                tokens.add(token);
+            }
+        }
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (ready.isEmpty() && emitted < limit && tier < Tier.values().length) {
+            if (nameIndex == names.size()) {
+                nameIndex = 0;
+                rank++;
+            }
+            if (rank >= ranks(Tier.values()[tier])) {
+                rank = 0;
+                tier++;
+                continue;
+            }
+            if (names.isEmpty()) {
+                break;
+            }
+            
+            scratch.clear();
+            expand(Tier.values()[tier], rank, names.get(nameIndex++), scratch);
+            for (String relative : scratch) {
+                String candidate = DomainName.normalize(relative + "." + domain);
+                if (candidate == null || known.contains(candidate)) {
+                    continue;
+                }
+                if (seen.add(candidate)) {
+                    ready.add(candidate);
+                } else {
+                    duplicates++;
+                }
+            }
+        }
+        return !ready.isEmpty() && emitted < limit;
+    }
+    
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        emitted++;
+        return ready.poll();
+    }
+    
+    private int ranks(Tier tier) {
+        int words = Math.min(tokens.size(), maxTokens);
+        switch (tier) {
+            case NUMBERS:
+                return OFFSETS.length;
+            case SWAP:
+                // Rank 0 reorders the name's own words, the rest put a known word in place of one
+                return words + 1;
+            default:
+                return words;
+        }
+    }
+    
+    private void expand(Tier tier, int rank, String[] labels, List<String> out) {
+        String first = labels[0];
+        String rest = labels.length > 1 ? "." + String.join(".", Arrays.copyOfRange(labels, 1, labels.length)) : "";
+        switch (tier) {
+            case NUMBERS:
+                incrementNumbers(labels, OFFSETS[rank], out);
+                break;
+            case SWAP:
+                String[] parts = first.split("-");
+                if (rank == 0) {
+                    for (int i = 0; i + 1 < parts.length; i++) {
+                        String[] swapped = parts.clone();
+                        swapped[i] = parts[i + 1];
+                        swapped[i + 1] = parts[i];
+                        out.add(String.join("-", swapped) + rest);
+                    }
+                } else if (!containsToken(parts, tokens.get(rank - 1))) {
+                    // With a single part this replaces the whole label, which finds siblings
+                    String token = tokens.get(rank - 1);
+                    for (int i = 0; i < parts.length; i++) {
+                        String[] replaced = parts.clone();
+                        replaced[i] = token;
+                        out.add(String.join("-", replaced) + rest);
+                    }
+                }
+                break;
+            case AFFIX:
+                String token = tokens.get(rank);
+                if (!containsToken(first.split("-"), token)) {
+                    out.add(token + "-" + first + rest);
+                    out.add(first + "-" + token + rest);
+                }
+                break;
+            case INSERT:
+                // A new label to the left, or a zone between the name and its parent
+                out.add(tokens.get(rank) + "." + first + rest);
+                out.add(first + "." + tokens.get(rank) + rest);
+                break;
+        }
+    }
+    
+    // Moves every number in the name by offset, keeping zero padding; a first label without
+    // a number gets one appended instead (api becomes api2)
+    private static void incrementNumbers(String[] labels, int offset, List<String> out) {
+        boolean numbered = false;
+        for (int i = 0; i < labels.length; i++) {
+            String label = labels[i];
+            int start = 0;
+            while (start < label.length()) {
+                if (!Character.isDigit(label.charAt(start))) {
+                    start++;
+                    continue;
+                }
+                int end = start;
+                while (end < label.length() && Character.isDigit(label.charAt(end))) {
+                    end++;
+                }
+                numbered = true;
+                // Longer digit runs are ids or dates rather than counters
+                if (end - start <= 6) {
+                    int value = Integer.parseInt(label.substring(start, end)) + offset;
+                    if (value >= 0) {
+                        String number = label.charAt(start) == '0'
+                            ? String.format("%0" + (end - start) + "d", value) : Integer.toString(value);
+                        String[] changed = labels.clone();
+                        changed[i] = label.substring(0, start) + number + label.substring(end);
+                        out.add(String.join(".", changed));
+                    }
+                }
+                start = end;
+            }
+        }
+        if (!numbered && offset > 0) {
+            String[] changed = labels.clone();
+            changed[0] = labels[0] + (offset + 1);
+            out.add(String.join(".", changed));
+        }
+    }
+    
+    // api-dev-dev is never a better guess than api-dev
+    private static boolean containsToken(String[] parts, String token) {
+        for (String part : parts) {
+            if (stripDigits(part).equals(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static String stripDigits(String part) {
+        int end = part.length();
+        while (end > 0 && Character.isDigit(part.charAt(end - 1))) {
+            end--;
+        }
+        return part.substring(0, end);
+    }
+    
+    public int getSeedCount() {
+        return names.size();
+    }
+    
+    public long getEmitted() {
+        return emitted;
+    }
+    
+    public long getDuplicates() {
+        return duplicates;
+    }
+    
+    public BloomFilter getFilter() {
+        return seen;
+    }
+    
+    // Takes effect for candidates generated after the call
+    public void setFilterBits(long filterBits) {
+        this.seen = new BloomFilter(filterBits, 3);
+    }
+    
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+    
+    public void setLimit(long limit) {
+        this.limit = limit;
+    }
+}
\ No newline at end of file
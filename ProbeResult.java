@@ -0,0 +1,92 @@
+import java.util.*;
+
+public class ProbeResult {
+    private final String host;
+    private final List<String> schemes;
+    private final int statusCode;
+    private final String finalUrl;
+    private final long latencyMillis;
+    
+    public ProbeResult(String host, Collection<String> schemes) {
+        this(host, schemes, 0, null, -1);
+    }
+    
+    public ProbeResult(String host, Collection<String> schemes, int statusCode, String finalUrl, long latencyMillis) {
+        this.host = host;
+        this.schemes = Collections.unmodifiableList(new ArrayList<>(schemes));
+        this.statusCode = statusCode;
+        this.finalUrl = finalUrl;
+        this.latencyMillis = latencyMillis;
+    }
+    
+    public static ProbeResult dead(String host) {
+        return new ProbeResult(host, Collections.emptyList());
+    }
+    
+    // Joins single-scheme results in the order they answered; the first one supplies the details
+    public static ProbeResult combine(String host, List<ProbeResult> responses) {
+        Set<String> schemes = new LinkedHashSet<>();
+        ProbeResult first = null;
+        for (ProbeResult response : responses) {
+            if (response.isLive()) {
+                schemes.addAll(response.schemes);
+                if (first == null) {
+                    first = response;
+                }
+            }
+        }
+        if (first == null) {
+            return dead(host);
+        }
+        return new ProbeResult(host, schemes, first.statusCode, first.finalUrl, first.latencyMillis);
+    }
+    
+    // Hosts without a probe result (for example loaded from a file) get both schemes
+    public static List<String> urls(String host, ProbeResult result) {
+        List<String> urls = new ArrayList<>();
+        if (result != null && result.isLive()) {
+            for (String scheme : result.schemes) {
+                urls.add(scheme + "://" + host);
+            }
+        } else {
+            urls.add("https://" + host);
+            urls.add("http://" + host);
+        }
+        return urls;
+    }
+    
+    public String getHost() {
+        return host;
+    }
+    
+    // Schemes that answered with a 2xx or 3xx status, in the order they answered
+    public List<String> getSchemes() {
+        return schemes;
+    }
+    
+    // Status of the first responding scheme, or 0 when it is not known (cache, external tools)
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    // Where the first responding scheme ended up after redirects, or null when not known
+    public String getFinalUrl() {
+        return finalUrl;
+    }
+    
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+    
+    public boolean isLive() {
+        return !schemes.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        if (statusCode == 0) {
+            return host + " " + schemes;
+        }
+        return host + " " + schemes + " " + statusCode + " " + finalUrl + " " + latencyMillis + "ms";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,352 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+public class ProcessSupervisor {
+    // How often CPU time of the process tree is sampled; the OS forgets it once a process exits
+    private static final long SAMPLE_INTERVAL_MILLIS = 500;
+    // How long the pipes may stay open after the deadline before our ends are closed
+    private static final long KILL_GRACE_MILLIS = 2000;
+    // Set to a fresh value for every run and inherited by everything the tool starts
+    private static final String RUN_MARKER = "SUBMERGEX_RUN";
+    
+    private final ExecutorService pumps = Executors.newCachedThreadPool(daemonThreads("process-pump"));
+    private final ScheduledExecutorService watchdog =
+        Executors.newSingleThreadScheduledExecutor(daemonThreads("process-watchdog"));
+    // Shared by everything that runs through this supervisor; null means no limit
+    private volatile Semaphore processSlots;
+    
+    public static List<String> shell(String command) {
+        return Arrays.asList("bash", "-c", command);
+    }
+    
+    public Result run(String name, String command, long timeoutMillis,
+                      Consumer<String> onStdout, Consumer<String> onStderr) {
+        return run(name, new ProcessBuilder(shell(command)), timeoutMillis, onStdout, onStderr);
+    }
+    
+    public Result run(String name, ProcessBuilder builder, long timeoutMillis,
+                      Consumer<String> onStdout, Consumer<String> onStderr) {
+        return run(name, builder, timeoutMillis, null, onStdout, onStderr);
+    }
+    
+    // Runs the process to completion or until the wall-clock deadline, whichever comes first.
+    // Both streams are read at the same time so neither pipe can fill up and stall the tool.
+    // Lines from input are written to stdin while the output is being read; the iterator may
+    // block until the next line is available, and the pipe throttles it when the tool falls behind.
+    // With input, the deadline starts once the input has ended, so a slow producer does not eat
+    // into the tool's own time.
+    public Result run(String name, ProcessBuilder builder, long timeoutMillis, Iterator<String> input,
+                      Consumer<String> onStdout, Consumer<String> onStderr) {
+        Semaphore slots = processSlots;
+        if (slots == null) {
+            return runProcess(name, builder, timeoutMillis, input, onStdout, onStderr);
+        }
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Result result = new Result(name);
+            result.error = "interrupted";
+            return result;
+        }
+        try {
+            return runProcess(name, builder, timeoutMillis, input, onStdout, onStderr);
+        } finally {
+            slots.release();
+        }
+    }
+    
+    // The timeout and wall time start once the process has a slot
+    private Result runProcess(String name, ProcessBuilder builder, long timeoutMillis, Iterator<String> input,
+                              Consumer<String> onStdout, Consumer<String> onStderr) {
+        Result result = new Result(name);
+        long startTime = System.nanoTime();
+        
+        String marker = UUID.randomUUID().toString();
+        builder.environment().put(RUN_MARKER, marker);
+        Process process;
+        try {
+            process = builder.start();
+        } catch (IOException e) {
+            result.error = e.getMessage();
+            return result;
+        }
+        
+        Map<Long, ProcessHandle> tree = new ConcurrentHashMap<>();
+        Map<Long, Duration> cpuTimes = new ConcurrentHashMap<>();
+        ScheduledFuture<?> sampler = watchdog.scheduleAtFixedRate(
+            () -> sampleTree(process, tree, cpuTimes), 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        
+        AtomicLong stdoutBytes = new AtomicLong();
+        AtomicLong stderrBytes = new AtomicLong();
+        Future<?> stdout = pumps.submit(() -> pump(process.getInputStream(), onStdout, stdoutBytes));
+        Future<?> stderr = builder.redirectErrorStream()
+            ? CompletableFuture.completedFuture(null)
+            : pumps.submit(() -> pump(process.getErrorStream(), onStderr, stderrBytes));
+        AtomicLong deadline = new AtomicLong(Long.MAX_VALUE);
+        AtomicReference<ScheduledFuture<?>> killer = new AtomicReference<>();
+        // A background child can keep the pipes open after the tool itself has exited
+        Runnable startDeadline = () -> {
+            deadline.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+            killer.set(watchdog.schedule(() -> {
+                if (process.isAlive() || !stdout.isDone() || !stderr.isDone()) {
+                    result.timedOut = true;
+                    killTree(process, tree, marker);
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS));
+        };
+        if (input == null) {
+            startDeadline.run();
+        }
+        Future<?> feeder = pumps.submit(() -> {
+            feed(process.getOutputStream(), input, result);
+            // Not when the run is already over and cancelled the feeder
+            if (input != null && !Thread.currentThread().isInterrupted()) {
+                startDeadline.run();
+            }
+        });
+        
+        try {
+            // The pipes close when the last process holding them exits or is killed. A child that
+            // daemonized between two samples escapes killTree and can hold them open for good, so
+            // past the deadline our ends are closed, which ends the pumps
+            try {
+                awaitPump(stdout, deadline);
+                awaitPump(stderr, deadline);
+            } catch (TimeoutException e) {
+                result.timedOut = true;
+                killTree(process, tree, marker);
+                closeQuietly(process.getInputStream());
+                closeQuietly(process.getErrorStream());
+                result.error = "output still open " + KILL_GRACE_MILLIS / 1000 + "s after the deadline, pipes closed";
+            }
+            if (process.waitFor(KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS)) {
+                result.exitCode = process.exitValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            killTree(process, tree, marker);
+            result.error = "interrupted";
+        } catch (ExecutionException e) {
+            killTree(process, tree, marker);
+            result.error = e.getCause().getMessage();
+        } finally {
+            feeder.cancel(true);
+            ScheduledFuture<?> scheduledKill = killer.get();
+            if (scheduledKill != null) {
+                scheduledKill.cancel(false);
+            }
+            sampler.cancel(false);
+            sampleTree(process, tree, cpuTimes);
+            // Stray background children outlive the tool otherwise
+            tree.values().stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+            markedProcesses(marker).forEach(ProcessHandle::destroyForcibly);
+        }
+        
+        result.stdoutBytes = stdoutBytes.get();
+        result.stderrBytes = stderrBytes.get();
+        
+        result.cpuSeconds = cpuTimes.values().stream().mapToLong(Duration::toMillis).sum() / 1000.0;
+        result.wallSeconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        return result;
+    }
+    
+    // Waits until the pump ends or the grace period after the deadline has passed; while the
+    // deadline has not started yet, it is re-checked every sample interval
+    private void awaitPump(Future<?> pump, AtomicLong deadline)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        while (true) {
+            long until = deadline.get();
+            long waitNanos = until == Long.MAX_VALUE
+                ? TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MILLIS)
+                : until + TimeUnit.MILLISECONDS.toNanos(KILL_GRACE_MILLIS) - System.nanoTime();
+            try {
+                pump.get(Math.max(0, waitNanos), TimeUnit.NANOSECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (until != Long.MAX_VALUE) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private void feed(OutputStream stream, Iterator<String> input, Result result) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+            while (input != null && input.hasNext()) {
+                String line = input.next();
+                writer.write(line);
+                writer.write('\n');
+                // Flushed per line so the tool can start on a host as soon as it arrives
+                writer.flush();
+                result.stdinBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            }
+        } catch (IOException e) {
+            // The tool exited or was killed before reading all of its input
+        }
+    }
+    
+    // Splits on newlines by hand so the byte count is exact whatever the encoding
+    private long pump(InputStream stream, Consumer<String> onLine, AtomicLong total) throws IOException {
+        byte[] buffer = new byte[8192];
+        ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        
+        try (InputStream in = stream) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total.addAndGet(read);
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        line.write(buffer, start, i - start);
+                        deliver(line, onLine);
+                        start = i + 1;
+                    }
+                }
+                line.write(buffer, start, read - start);
+            }
+            if (line.size() > 0) {
+                deliver(line, onLine);
+            }
+        }
+        return total.get();
+    }
+    
+    private void deliver(ByteArrayOutputStream line, Consumer<String> onLine) {
+        if (onLine != null) {
+            String text = line.toString(StandardCharsets.UTF_8);
+            onLine.accept(text.endsWith("\r") ? text.substring(0, text.length() - 1) : text);
+        }
+        line.reset();
+    }
+    
+    // Keeps the largest CPU time seen per pid and remembers every descendant, so a child
+    // that was re-parented after its shell exited can still be killed at the deadline
+    private void sampleTree(Process process, Map<Long, ProcessHandle> tree, Map<Long, Duration> cpuTimes) {
+        List<ProcessHandle> handles = new ArrayList<>();
+        handles.add(process.toHandle());
+        process.descendants().forEach(handles::add);
+        
+        for (ProcessHandle handle : handles) {
+            tree.putIfAbsent(handle.pid(), handle);
+            handle.info().totalCpuDuration().ifPresent(cpu ->
+                cpuTimes.merge(handle.pid(), cpu, (a, b) -> a.compareTo(b) >= 0 ? a : b));
+        }
+    }
+    
+    private static void closeQuietly(Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            // Nothing more to release
+        }
+    }
+    
+    // Goes through ProcessHandle rather than Process.destroyForcibly, which would also close
+    // our end of the pipes and lose whatever output is still buffered
+    private void killTree(Process process, Map<Long, ProcessHandle> tree, String marker) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        tree.values().forEach(ProcessHandle::destroyForcibly);
+        markedProcesses(marker).forEach(ProcessHandle::destroyForcibly);
+        process.toHandle().destroyForcibly();
+    }
+    
+    // A child that detached before it was ever sampled is no longer a descendant of anything
+    // we know; on Linux it is still found by the marker it inherited in its environment
+    private static List<ProcessHandle> markedProcesses(String marker) {
+        List<ProcessHandle> marked = new ArrayList<>();
+        String entry = RUN_MARKER + "=" + marker;
+        File[] pids = new File("/proc").listFiles((dir, name) -> name.chars().allMatch(Character::isDigit));
+        if (pids == null) {
+            return marked;
+        }
+        for (File pid : pids) {
+            try {
+                byte[] environment = Files.readAllBytes(new File(pid, "environ").toPath());
+                if (new String(environment, StandardCharsets.ISO_8859_1).contains(entry)) {
+                    ProcessHandle.of(Long.parseLong(pid.getName())).ifPresent(marked::add);
+                }
+            } catch (IOException e) {
+                // Exited in the meantime, or belongs to another user
+            }
+        }
+        return marked;
+    }
+    
+    // Caps how many processes run at once; further runs wait for a slot
+    public void setMaxProcesses(int maxProcesses) {
+        processSlots = new Semaphore(Math.max(1, maxProcesses));
+    }
+    
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    public static class Result {
+        private final String name;
+        private int exitCode = -1;
+        private volatile boolean timedOut;
+        private String error;
+        private double wallSeconds;
+        private double cpuSeconds;
+        private long stdoutBytes;
+        private long stderrBytes;
+        private volatile long stdinBytes;
+        
+        Result(String name) {
+            this.name = name;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public int getExitCode() {
+            return exitCode;
+        }
+        
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+        
+        // Set when the process could not be started or supervised
+        public String getError() {
+            return error;
+        }
+        
+        public boolean isSuccess() {
+            return error == null && !timedOut && exitCode == 0;
+        }
+        
+        public double getWallSeconds() {
+            return wallSeconds;
+        }
+        
+        public double getCpuSeconds() {
+            return cpuSeconds;
+        }
+        
+        public long getStdoutBytes() {
+            return stdoutBytes;
+        }
+        
+        public long getStderrBytes() {
+            return stderrBytes;
+        }
+        
+        public long getStdinBytes() {
+            return stdinBytes;
+        }
+    }
+}
\ No newline at end of file
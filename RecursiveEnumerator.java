@@ -0,0 +1,176 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Enumerates sub-zones of the domain that turn out to have many names of their own, such as
+// corp.example.com or eu.api.example.com, as jobs of their own. Every finished job can make
+// new zones dense enough to queue; zones surfaced by a job that found many new names are run
+// first, so the time and tool-run budgets go where names are still turning up.
+public class RecursiveEnumerator {
+    private final SubdomainFinder finder;
+    private int maxDepth = 2;
+    private int minNamesPerZone = 5;
+    private int maxConcurrentJobs = 2;
+    private int timeBudgetSeconds = 1800;
+    // One tool run is one tool enumerating one zone
+    private int maxToolRuns = 60;
+    
+    public RecursiveEnumerator(SubdomainFinder finder) {
+        this.finder = finder;
+    }
+    
+    // Adds the names found in sub-zones to subdomains and returns how many were new
+    public int run(String domain, List<String> tools, Set<String> subdomains) {
+        DomainName root = DomainName.parse(domain);
+        if (root == null || tools.isEmpty()) {
+            return 0;
+        }
+        System.out.println("\n" + "=".repeat(50));
+        System.out.printf("Recursive enumeration (depth %d, %d tool runs, %ds budget)\n",
+                        maxDepth, maxToolRuns, timeBudgetSeconds);
+        System.out.println("=".repeat(50));
+        
+        long deadline = System.currentTimeMillis() + timeBudgetSeconds * 1000L;
+        int startSize = subdomains.size();
+        Set<DomainName> scheduled = new HashSet<>();
+        scheduled.add(root);
+        PriorityQueue<ZoneJob> queue = new PriorityQueue<>();
+        // The first round is the enumeration of the domain itself
+        double rootYield = (double) startSize / tools.size();
+        queueDenseZones(root, subdomains, rootYield, scheduled, queue);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentJobs));
+        CompletionService<ZoneJob> completion = new ExecutorCompletionService<>(executor);
+        int running = 0;
+        int toolRuns = 0;
+        int jobs = 0;
+        try {
+            while (true) {
+                while (running < maxConcurrentJobs && !queue.isEmpty()) {
+                    ZoneJob job = queue.peek();
+                    Map<String, String> commands = finder.defaultCommands(tools, job.zone.toString());
+                    if (toolRuns + commands.size() > maxToolRuns || System.currentTimeMillis() > deadline) {
+                        break;
+                    }
+                    queue.poll();
+                    toolRuns += commands.size();
+                    jobs++;
+                    running++;
+                    System.out.printf("\n[recursive] Enumerating %s (depth %d, %d names, %.1f new per run upstream)\n",
+                                    job.zone, job.depth, job.density, job.priority);
+                    completion.submit(() -> {
+                        job.found = finder.executeCommands(commands, null);
+                        job.toolRuns = commands.size();
+                        return job;
+                    });
+                }
+                if (running == 0) {
+                    break;
+                }
+                
+                ZoneJob done;
+                try {
+                    done = completion.take().get();
+                } catch (ExecutionException e) {
+                    running--;
+                    System.err.println("[recursive] Job failed: " + e.getCause().getMessage());
+                    continue;
+                }
+                running--;
+                
+                int added = 0;
+                for (String name : done.found) {
+                    DomainName parsed = DomainName.parse(name);
+                    if (parsed != null && parsed.isWithin(root) && subdomains.add(parsed.toString())) {
+                        added++;
+                    }
+                }
+                double yield = (double) added / Math.max(1, done.toolRuns);
+                System.out.printf("[recursive] %s: %d names, %d new\n", done.zone, done.found.size(), added);
+                if (added > 0) {
+                    queueDenseZones(root, subdomains, yield, scheduled, queue);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        int added = subdomains.size() - startSize;
+        System.out.printf("\n[recursive] %d zones enumerated with %d tool runs, %d new subdomains", jobs, toolRuns, added);
+        if (!queue.isEmpty()) {
+            System.out.printf(", %d zones left over budget", queue.size());
+        }
+        System.out.println();
+        return added;
+    }
+    
+    // Counts the names under every zone between the domain and each name; zones with enough of
+    // them that have not been scheduled yet are queued behind the yield of the round that found them
+    private void queueDenseZones(DomainName root, Set<String> subdomains, double yield,
+                                 Set<DomainName> scheduled, PriorityQueue<ZoneJob> queue) {
+        Map<DomainName, Integer> counts = new HashMap<>();
+        for (String name : subdomains) {
+            DomainName parsed = DomainName.parse(name);
+            if (parsed == null || !parsed.isWithin(root)) {
+                continue;
+            }
+            for (DomainName zone = parsed.parent(); zone != null && !zone.equals(root); zone = zone.parent()) {
+                if (zone.labelCount() - root.labelCount() <= maxDepth) {
+                    counts.merge(zone, 1, Integer::sum);
+                }
+            }
+        }
+        
+        for (Map.Entry<DomainName, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() >= minNamesPerZone && scheduled.add(entry.getKey())) {
+                DomainName zone = entry.getKey();
+                queue.add(new ZoneJob(zone, zone.labelCount() - root.labelCount(), entry.getValue(), yield));
+            }
+        }
+    }
+    
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+    
+    public void setMinNamesPerZone(int minNamesPerZone) {
+        this.minNamesPerZone = minNamesPerZone;
+    }
+    
+    public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+        this.maxConcurrentJobs = maxConcurrentJobs;
+    }
+    
+    // Jobs are not started after the budget runs out; running ones finish under the tool timeout
+    public void setTimeBudgetSeconds(int timeBudgetSeconds) {
+        this.timeBudgetSeconds = timeBudgetSeconds;
+    }
+    
+    public void setMaxToolRuns(int maxToolRuns) {
+        this.maxToolRuns = maxToolRuns;
+    }
+    
+    // Highest upstream yield first, then the zone with the most names
+    private static class ZoneJob implements Comparable<ZoneJob> {
+        final DomainName zone;
+        final int depth;
+        final int density;
+        final double priority;
+        Set<String> found = Collections.emptySet();
+        int toolRuns = 0;
+        
+        ZoneJob(DomainName zone, int depth, int density, double priority) {
+            this.zone = zone;
+            this.depth = depth;
+            this.density = density;
+            this.priority = priority;
+        }
+        
+        @Override
+        public int compareTo(ZoneJob other) {
+            int byYield = Double.compare(other.priority, priority);
+            return byYield != 0 ? byYield : Integer.compare(other.density, density);
+        }
+    }
+}
\ No newline at end of file
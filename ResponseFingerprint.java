@@ -0,0 +1,130 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.*;
+import java.util.zip.CRC32;
+
+public class ResponseFingerprint {
+    private static final Pattern TITLE = Pattern.compile("<title[^>]*>(.*?)</title>",
+                                                         Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final int DEFAULT_SAMPLE_BYTES = 8192;
+    
+    private final int statusCode;
+    private final String title;
+    private final long contentLength;
+    private final long bodyHash;
+    
+    public ResponseFingerprint(int statusCode, String title, long contentLength, long bodyHash) {
+        this.statusCode = statusCode;
+        this.title = title;
+        this.contentLength = contentLength;
+        this.bodyHash = bodyHash;
+    }
+    
+    // Tries https then http; returns null when neither answers
+    public static ResponseFingerprint fetch(String host, int timeoutMillis) {
+        for (String scheme : new String[] {"https", "http"}) {
+            ResponseFingerprint fingerprint = fetchUrl(scheme + "://" + host, timeoutMillis, DEFAULT_SAMPLE_BYTES);
+            if (fingerprint != null) {
+                return fingerprint;
+            }
+        }
+        return null;
+    }
+    
+    public static ResponseFingerprint fetchUrl(String url, int timeoutMillis, int sampleBytes) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setInstanceFollowRedirects(true);
+            connection.setRequestProperty("User-Agent", "SubMergeX/2.1");
+            
+            int statusCode = connection.getResponseCode();
+            InputStream body = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            byte[] sample = body != null ? readSample(body, sampleBytes) : new byte[0];
+            connection.disconnect();
+            
+            return of(statusCode, connection.getContentLengthLong(), sample, sample.length);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    public static ResponseFingerprint of(int statusCode, long declaredLength, byte[] sample, int sampleLength) {
+        CRC32 crc = new CRC32();
+        crc.update(sample, 0, sampleLength);
+        long length = declaredLength >= 0 ? declaredLength : sampleLength;
+        return new ResponseFingerprint(statusCode, extractTitle(sample, sampleLength), length, crc.getValue());
+    }
+    
+    private static byte[] readSample(InputStream body, int limit) throws IOException {
+        try (InputStream in = body) {
+            ByteArrayOutputStream sample = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while (sample.size() < limit && (read = in.read(buffer, 0, Math.min(buffer.length, limit - sample.size()))) > 0) {
+                sample.write(buffer, 0, read);
+            }
+            return sample.toByteArray();
+        }
+    }
+    
+    private static String extractTitle(byte[] sample, int length) {
+        Matcher matcher = TITLE.matcher(new String(sample, 0, length, StandardCharsets.ISO_8859_1));
+        return matcher.find() ? matcher.group(1).trim().replaceAll("\\s+", " ") : "";
+    }
+    
+    // Catch-all pages often echo the requested host, so only the status and title must match
+    // exactly and the body may differ as long as its size stays within 10%
+    public boolean isSimilarTo(ResponseFingerprint other) {
+        if (other == null || statusCode != other.statusCode || !title.equals(other.title)) {
+            return false;
+        }
+        if (bodyHash == other.bodyHash) {
+            return true;
+        }
+        long larger = Math.max(contentLength, other.contentLength);
+        return larger == 0 || Math.abs(contentLength - other.contentLength) * 10 <= larger;
+    }
+    
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public long getContentLength() {
+        return contentLength;
+    }
+    
+    public long getBodyHash() {
+        return bodyHash;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResponseFingerprint)) {
+            return false;
+        }
+        ResponseFingerprint other = (ResponseFingerprint) o;
+        return statusCode == other.statusCode && contentLength == other.contentLength
+            && bodyHash == other.bodyHash && title.equals(other.title);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(statusCode, title, contentLength, bodyHash);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%d \"%s\" %d bytes %08x", statusCode, title, contentLength, bodyHash);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import javax.net.ssl.*;
+
+public class SanHarvester {
+    // GeneralName type for dNSName entries, see RFC 5280 section 4.2.1.6
+    private static final int DNS_NAME = 2;
+    
+    private final DomainName scope;
+    private final Set<String> known = ConcurrentHashMap.newKeySet();
+    private final Set<String> harvested = ConcurrentHashMap.newKeySet();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    // Certificates are often shared by many hosts, so each one is only read once
+    private final Set<String> seenCertificates = ConcurrentHashMap.newKeySet();
+    
+    public SanHarvester(String scope, Collection<String> knownNames) {
+        this.scope = DomainName.parse(scope);
+        if (this.scope == null) {
+            throw new IllegalArgumentException("Invalid scope: " + scope);
+        }
+        known.addAll(knownNames);
+    }
+    
+    // Takes the chain a server presented; only the leaf carries names for the server
+    public void harvest(Certificate[] chain) {
+        if (chain == null || chain.length == 0 || !(chain[0] instanceof X509Certificate)) {
+            return;
+        }
+        X509Certificate leaf = (X509Certificate) chain[0];
+        String id = leaf.getIssuerX500Principal().getName() + "#" + leaf.getSerialNumber();
+        if (!seenCertificates.add(id)) {
+            return;
+        }
+        
+        try {
+            Collection<List<?>> names = leaf.getSubjectAlternativeNames();
+            if (names == null) {
+                return;
+            }
+            for (List<?> name : names) {
+                if (name.size() >= 2 && Integer.valueOf(DNS_NAME).equals(name.get(0))) {
+                    offer(String.valueOf(name.get(1)));
+                }
+            }
+        } catch (CertificateParsingException e) {
+            // A certificate with a broken SAN extension simply yields nothing
+        }
+    }
+    
+    // Wildcard entries give away their parent zone, which is a name worth probing in itself
+    private void offer(String san) {
+        DomainName name = DomainName.parse(san);
+        if (name != null && name.isWithin(scope) && known.add(name.toString())) {
+            harvested.add(name.toString());
+            pending.add(name.toString());
+        }
+    }
+    
+    // Names found since the last call, for the next probing round
+    public Set<String> drainNew() {
+        Set<String> names = new HashSet<>();
+        for (String name : pending) {
+            if (pending.remove(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+    
+    public Set<String> getHarvested() {
+        return harvested;
+    }
+    
+    // Hands every chain a server presents to the listener before the default checks run, so the
+    // names of self-signed, expired and mismatched certificates are seen as well
+    public static SSLContext reportingContext(Consumer<Certificate[]> listener) {
+        try {
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init((KeyStore) null);
+            for (TrustManager manager : factory.getTrustManagers()) {
+                if (manager instanceof X509ExtendedTrustManager) {
+                    SSLContext context = SSLContext.getInstance("TLS");
+                    context.init(null, new TrustManager[] {
+                        new ReportingTrustManager((X509ExtendedTrustManager) manager, listener)}, null);
+                    return context;
+                }
+            }
+            throw new IllegalStateException("No X.509 trust manager available");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("TLS is not available", e);
+        }
+    }
+    
+    private static class ReportingTrustManager extends X509ExtendedTrustManager {
+        private final X509ExtendedTrustManager trust;
+        private final Consumer<Certificate[]> listener;
+        
+        ReportingTrustManager(X509ExtendedTrustManager trust, Consumer<Certificate[]> listener) {
+            this.trust = trust;
+            this.listener = listener;
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            listener.accept(chain);
+            trust.checkServerTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            listener.accept(chain);
+            trust.checkServerTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            listener.accept(chain);
+            trust.checkServerTrusted(chain, authType);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket)
+                throws CertificateException {
+            trust.checkClientTrusted(chain, authType, socket);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine)
+                throws CertificateException {
+            trust.checkClientTrusted(chain, authType, engine);
+        }
+        
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) throws CertificateException {
+            trust.checkClientTrusted(chain, authType);
+        }
+        
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return trust.getAcceptedIssuers();
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,20 @@
 import java.io.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class ScreenshotCapturer {
+    private int goWitnessTimeoutSeconds = 3600;
+    private int reportTimeoutSeconds = 300;
+    private int maxShards = 0;
+    private int minUrlsPerShard = 50;
+    private long memoryPerShardMb = 1024;
+    private Map<String, ProbeResult> probeResults = Collections.emptyMap();
+    private ProcessSupervisor supervisor = new ProcessSupervisor();
+    // Shard databases a merge failed on, per screenshot folder; each gets a report of its own
+    private final Map<String, List<String>> unmergedDatabases = new ConcurrentHashMap<>();
     
     public void captureScreenshots(Set<String> liveSubdomains, String outputFolder, Scanner scanner) {
         System.out.println("\n" + "=".repeat(50));
@@ -13,23 +26,45 @@ public class ScreenshotCapturer {
             return;
         }
         
+        String screenshotDir = prepareScreenshots(outputFolder, scanner);
+        if (screenshotDir == null) {
+            return;
+        }
+        
+        String targetFile = prepareTargetFile(liveSubdomains, screenshotDir, "target_urls.txt");
+        if (targetFile != null) {
+            executeGoWitness(targetFile, screenshotDir);
+            generateReport(screenshotDir);
+        }
+    }
+    
+    // Without a scanner there is nobody to offer the install to, so a missing GoWitness skips
+    public String prepareScreenshots(String outputFolder, Scanner scanner) {
         if (!isGoWitnessInstalled()) {
-            if (!promptInstallGoWitness(scanner)) {
+            if (scanner == null || !promptInstallGoWitness(scanner)) {
                 System.out.println("Skipping screenshot capture");
-                return;
+                return null;
             }
         }
         
         String screenshotDir = outputFolder + "/screenshots";
         createScreenshotDirectory(screenshotDir);
-        
-        String targetFile = prepareTargetFile(liveSubdomains, screenshotDir);
+        return screenshotDir;
+    }
+    
+    public void captureBatch(Collection<String> liveSubdomains, String screenshotDir, int batchNumber) {
+        System.out.printf("\nScreenshot batch %d: %d hosts\n", batchNumber, liveSubdomains.size());
+        String targetFile = prepareTargetFile(liveSubdomains, screenshotDir,
+                                              "target_urls_batch" + batchNumber + ".txt");
         if (targetFile != null) {
             executeGoWitness(targetFile, screenshotDir);
-            generateReport(screenshotDir);
         }
     }
     
+    public void finishScreenshots(String screenshotDir) {
+        generateReport(screenshotDir);
+    }
+    
     private boolean isGoWitnessInstalled() {
         try {
             ProcessBuilder pb = new ProcessBuilder("which", "gowitness");
@@ -56,21 +91,16 @@ public class ScreenshotCapturer {
         System.out.println("Installing GoWitness...");
         try {
             String installCommand = "go install github.com/sensepost/gowitness@latest";
-            ProcessBuilder pb = new ProcessBuilder("bash", "-c", installCommand);
-            Process process = pb.start();
-            
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.contains("installed") || line.contains("downloading")) {
-                        System.out.println("  " + line);
-                    }
+            // go reports its progress on stderr
+            Consumer<String> onLine = line -> {
+                if (line.contains("installed") || line.contains("downloading")) {
+                    System.out.println("  " + line);
                 }
-            }
+            };
+            ProcessSupervisor.Result run = supervisor.run("go install", installCommand,
+                                                          reportTimeoutSeconds * 1000L, onLine, onLine);
             
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
+            if (run.isSuccess()) {
                 System.out.println("GoWitness installed successfully!");
                 return true;
             } else {
@@ -92,16 +122,19 @@ public class ScreenshotCapturer {
         }
     }
     
-    private String prepareTargetFile(Set<String> liveSubdomains, String screenshotDir) {
-        String targetFile = screenshotDir + "/target_urls.txt";
+    private String prepareTargetFile(Collection<String> liveSubdomains, String screenshotDir, String fileName) {
+        String targetFile = screenshotDir + "/" + fileName;
         
         try (PrintWriter writer = new PrintWriter(targetFile)) {
+            int targets = 0;
             for (String subdomain : liveSubdomains) {
-                writer.println("https://" + subdomain);
-                writer.println("http://" + subdomain);
+                for (String url : ProbeResult.urls(subdomain, probeResults.get(subdomain))) {
+                    writer.println(url);
+                    targets++;
+                }
             }
             System.out.println("Target URLs file created: " + targetFile);
-            System.out.println("Total targets: " + (liveSubdomains.size() * 2) + " URLs");
+            System.out.println("Total targets: " + targets + " URLs");
             return targetFile;
         } catch (IOException e) {
             System.err.println("Error creating target URLs file: " + e.getMessage());
@@ -109,83 +142,248 @@ public class ScreenshotCapturer {
         }
     }
     
+    // Splits the targets over several gowitness processes; all write images into the run's screenshot
+    // folder, while each keeps its target file and database in a shard dir, since SQLite allows only
+    // one writer at a time. The shard databases are merged into the run's database afterwards.
     private void executeGoWitness(String targetFile, String screenshotDir) {
-        String command = String.format(
-            "gowitness scan file -f %s --no-http --screenshot-path %s --timeout 10",
-            targetFile, screenshotDir
-        );
+        List<String> urls = readTargetFile(targetFile);
+        int shards = shardCount(urls.size());
         
-        System.out.println("Running GoWitness command:");
-        System.out.println("   " + command);
+        System.out.printf("Running GoWitness on %d URLs in %d shard%s\n", urls.size(), shards, shards == 1 ? "" : "s");
         System.out.println("\nThis may take a while depending on the number of live subdomains...");
         
-        try {
-            ProcessBuilder builder = new ProcessBuilder("bash", "-c", command);
-            Process process = builder.start();
-            
-            // Monitor progress
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()));
-                 BufferedReader errorReader = new BufferedReader(
-                    new InputStreamReader(process.getErrorStream()))) {
-                
-                int screenshotCount = 0;
-                String line;
-                
-                // Read stdout
-                while ((line = reader.readLine()) != null) {
-                    if (line.contains("screenshot") || line.contains("Screenshotting")) {
-                        screenshotCount++;
-                        System.out.printf("Screenshot %d completed\n", screenshotCount);
-                    } else if (line.contains("ERROR") || line.contains("WARN")) {
-                        System.out.println("  " + line);
-                    }
+        List<String> shardFiles = new ArrayList<>();
+        List<String> shardDatabases = new ArrayList<>();
+        if (shards == 1) {
+            shardFiles.add(targetFile);
+            shardDatabases.add(databasePath(screenshotDir));
+        } else {
+            String shardRoot = screenshotDir + "/shards/" + new File(targetFile).getName().replaceFirst("\\.txt$", "");
+            for (int i = 0; i < shards; i++) {
+                File dir = new File(shardRoot + "-" + (i + 1));
+                dir.mkdirs();
+                // Round-robin keeps the shards even when a run of URLs is slow
+                List<String> shardUrls = new ArrayList<>();
+                for (int j = i; j < urls.size(); j += shards) {
+                    shardUrls.add(urls.get(j));
                 }
-                
-                // Read stderr
-                while ((line = errorReader.readLine()) != null) {
-                    if (!line.trim().isEmpty()) {
-                        System.out.println("  " + line);
-                    }
+                String shardFile = writeUrls(shardUrls, dir.getPath() + "/target_urls.txt");
+                if (shardFile != null) {
+                    shardFiles.add(shardFile);
+                    shardDatabases.add(new File(dir, "shard-" + (i + 1) + ".sqlite3").getAbsolutePath());
                 }
             }
-            
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
-                System.out.println("\nScreenshots captured successfully!");
-                System.out.println("Screenshots saved to: " + screenshotDir);
-                
-                // Count actual screenshot files
-                File dir = new File(screenshotDir);
-                File[] screenshots = dir.listFiles((d, name) -> 
-                    name.toLowerCase().endsWith(".png") || name.toLowerCase().endsWith(".jpg"));
-                
-                if (screenshots != null) {
-                    System.out.println("Total screenshots captured: " + screenshots.length);
+        }
+        
+        AtomicInteger progress = new AtomicInteger();
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(shardFiles.size());
+        List<Future<ProcessSupervisor.Result>> futures = new ArrayList<>();
+        for (int i = 0; i < shardFiles.size(); i++) {
+            String label = shards == 1 ? "gowitness" : "gowitness-" + (i + 1);
+            String shardFile = shardFiles.get(i);
+            String database = shardDatabases.get(i);
+            futures.add(executor.submit(() ->
+                runGoWitness(label, shardFile, screenshotDir, database, progress, urls.size())));
+        }
+        
+        int failed = 0;
+        double cpuSeconds = 0;
+        for (Future<ProcessSupervisor.Result> future : futures) {
+            try {
+                ProcessSupervisor.Result run = future.get();
+                cpuSeconds += run.getCpuSeconds();
+                if (!run.isSuccess()) {
+                    failed++;
                 }
-            } else {
-                System.out.println("GoWitness completed with exit code: " + exitCode);
-                System.out.println("Some screenshots may have been captured despite errors.");
+            } catch (InterruptedException | ExecutionException e) {
+                failed++;
+                System.err.println("Error running GoWitness: " + e.getMessage());
             }
-            
-        } catch (Exception e) {
-            System.err.println("Error running GoWitness: " + e.getMessage());
+        }
+        executor.shutdown();
+        if (shards > 1) {
+            mergeDatabases(shardDatabases, screenshotDir);
+        }
+        
+        System.out.printf("GoWitness finished in %.2fs (%.2fs cpu)\n",
+                        (System.currentTimeMillis() - startTime) / 1000.0, cpuSeconds);
+        if (failed == 0) {
+            System.out.println("\nScreenshots captured successfully!");
+            System.out.println("Screenshots saved to: " + screenshotDir);
+        } else {
+            System.out.printf("GoWitness failed in %d of %d shard%s\n", failed, futures.size(), futures.size() == 1 ? "" : "s");
+            System.out.println("Some screenshots may have been captured despite errors.");
+        }
+        
+        // Count actual screenshot files
+        File dir = new File(screenshotDir);
+        File[] screenshots = dir.listFiles((d, name) -> 
+            name.toLowerCase().endsWith(".png") || name.toLowerCase().endsWith(".jpg"));
+        
+        if (screenshots != null) {
+            System.out.println("Total screenshots captured: " + screenshots.length);
+        }
+    }
+    
+    private ProcessSupervisor.Result runGoWitness(String label, String targetFile, String screenshotDir,
+                                                  String database, AtomicInteger progress, int total) {
+        String command = String.format(
+            "gowitness scan file -f %s --no-http --screenshot-path %s --db-path %s --timeout 10",
+            new File(targetFile).getAbsolutePath(), new File(screenshotDir).getAbsolutePath(), database
+        );
+        System.out.printf("[%s] %s\n", label, command);
+        
+        // Monitor progress; stderr is read alongside stdout so a full pipe cannot stall gowitness
+        ProcessBuilder builder = new ProcessBuilder(ProcessSupervisor.shell(command));
+        builder.directory(new File(screenshotDir));
+        ProcessSupervisor.Result run = supervisor.run(label, builder, goWitnessTimeoutSeconds * 1000L,
+            line -> {
+                if (line.contains("screenshot") || line.contains("Screenshotting")) {
+                    System.out.printf("Screenshot %d/%d completed\n", progress.incrementAndGet(), total);
+                } else if (line.contains("ERROR") || line.contains("WARN")) {
+                    System.out.println("  [" + label + "] " + line);
+                }
+            },
+            line -> {
+                if (!line.trim().isEmpty()) {
+                    System.out.println("  [" + label + "] " + line);
+                }
+            });
+        
+        if (run.getError() != null) {
+            System.err.println("[" + label + "] Error running GoWitness: " + run.getError());
             System.out.println("Make sure GoWitness is properly installed and accessible.");
+        } else if (run.isTimedOut()) {
+            System.out.printf("[%s] Timed out after %ds and was terminated\n", label, goWitnessTimeoutSeconds);
+        } else if (run.getExitCode() != 0) {
+            System.out.printf("[%s] GoWitness completed with exit code: %d\n", label, run.getExitCode());
+        }
+        return run;
+    }
+    
+    // One headless browser per shard, limited by cores and by memory that is actually free
+    private int shardCount(int urls) {
+        if (maxShards > 0) {
+            return Math.max(1, Math.min(maxShards, urls));
+        }
+        int byCores = Runtime.getRuntime().availableProcessors();
+        long availableMb = availableMemoryMb();
+        int byMemory = availableMb < 0 ? byCores : (int) Math.max(1, availableMb / memoryPerShardMb);
+        int byTargets = (urls + minUrlsPerShard - 1) / minUrlsPerShard;
+        return Math.max(1, Math.min(byCores, Math.min(byMemory, byTargets)));
+    }
+    
+    // MemAvailable from /proc/meminfo, or -1 where that is not available
+    private static long availableMemoryMb() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/meminfo"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("MemAvailable:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Not Linux; fall back to the core count alone
+        }
+        return -1;
+    }
+    
+    private static List<String> readTargetFile(String targetFile) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(targetFile))) {
+            List<String> urls = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    urls.add(line);
+                }
+            }
+            return urls;
+        } catch (IOException e) {
+            return new ArrayList<>();
+        }
+    }
+    
+    private static String writeUrls(List<String> urls, String file) {
+        try (PrintWriter writer = new PrintWriter(file)) {
+            urls.forEach(writer::println);
+            return file;
+        } catch (IOException e) {
+            System.err.println("Error creating target URLs file: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Folds the shard databases, along with what earlier batches of the run recorded, into the
+    // run's database; the merged file replaces it only once the merge has succeeded
+    private void mergeDatabases(List<String> shardDatabases, String screenshotDir) {
+        List<String> sources = new ArrayList<>();
+        for (String database : shardDatabases) {
+            if (new File(database).exists()) {
+                sources.add(database);
+            }
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+        
+        File target = new File(databasePath(screenshotDir));
+        File merged = new File(target.getPath() + ".merging");
+        StringBuilder command = new StringBuilder("gowitness merge");
+        if (target.exists()) {
+            command.append(" -i ").append(target.getPath());
+        }
+        for (String source : sources) {
+            command.append(" -i ").append(source);
+        }
+        command.append(" -o ").append(merged.getPath());
+        
+        ProcessBuilder builder = new ProcessBuilder(ProcessSupervisor.shell(command.toString()));
+        builder.directory(new File(screenshotDir));
+        ProcessSupervisor.Result run = supervisor.run("gowitness merge", builder,
+                                                      reportTimeoutSeconds * 1000L, null, null);
+        try {
+            if (!run.isSuccess() || !merged.exists()) {
+                throw new IOException(run.getError() != null ? run.getError() : "exit code " + run.getExitCode());
+            }
+            Files.move(merged.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.printf("Merged %d shard databases into %s\n", sources.size(), target.getPath());
+        } catch (IOException e) {
+            System.out.println("Could not merge shard databases (" + e.getMessage() + "), reporting each shard separately");
+            unmergedDatabases.computeIfAbsent(screenshotDir, dir -> Collections.synchronizedList(new ArrayList<>()))
+                             .addAll(sources);
         }
     }
     
     private void generateReport(String screenshotDir) {
         System.out.println("\nGenerating HTML report...");
-        
+        List<String> unmerged = unmergedDatabases.getOrDefault(screenshotDir, Collections.emptyList());
+        // Nothing reached the run's database when every merge failed
+        if (unmerged.isEmpty() || new File(databasePath(screenshotDir)).exists()) {
+            generateReport(screenshotDir, databasePath(screenshotDir), "report.html");
+        }
+        for (String database : unmerged) {
+            // Named after the shard dir, which is unique across the batches of a run
+            generateReport(screenshotDir, database, "report-" + new File(database).getParentFile().getName() + ".html");
+        }
+    }
+    
+    private void generateReport(String screenshotDir, String database, String reportName) {
         try {
             String reportCommand = String.format(
-                "gowitness report generate -P %s --sort-perception", screenshotDir);
-            ProcessBuilder builder = new ProcessBuilder("bash", "-c", reportCommand);
-            Process process = builder.start();
+                "gowitness report generate -P %s --db-path %s --name %s --sort-perception",
+                new File(screenshotDir).getAbsolutePath(), database, reportName);
+            ProcessBuilder builder = new ProcessBuilder(ProcessSupervisor.shell(reportCommand));
+            builder.directory(new File(screenshotDir));
+            ProcessSupervisor.Result run = supervisor.run("gowitness report", builder,
+                                                          reportTimeoutSeconds * 1000L, null, null);
+            if (run.getError() != null) {
+                throw new IOException(run.getError());
+            }
             
-            int exitCode = process.waitFor();
+            int exitCode = run.getExitCode();
             if (exitCode == 0) {
-                System.out.println("HTML report generated: " + screenshotDir + "/report.html");
+                System.out.println("HTML report generated: " + screenshotDir + "/" + reportName);
                 System.out.println("Open the report in your browser to view all screenshots.");
             } else {
                 System.out.println("Could not generate HTML report (exit code: " + exitCode + ")");
@@ -197,6 +395,20 @@ public class ScreenshotCapturer {
         }
     }
     
+    // The run's database, which the report is built from; single-shard runs write to it directly and
+    // sharded runs are merged into it. It lives in the run's own folder, so concurrent scans of
+    // different domains never share it
+    private static String databasePath(String screenshotDir) {
+        return new File(screenshotDir, "gowitness.sqlite3").getAbsolutePath();
+    }
+    
+    // Only the schemes that answered during live checking are screenshotted
+    public int countTargetUrls(Collection<String> liveSubdomains) {
+        return liveSubdomains.stream()
+                             .mapToInt(s -> ProbeResult.urls(s, probeResults.get(s)).size())
+                             .sum();
+    }
+    
     public void displayScreenshotSummary(String outputFolder, int totalTargets) {
         String screenshotDir = outputFolder + "/screenshots";
         File dir = new File(screenshotDir);
@@ -224,4 +436,21 @@ public class ScreenshotCapturer {
             System.out.println("HTML Report: " + reportFile.getAbsolutePath());
         }
     }
+    
+    public void setGoWitnessTimeoutSeconds(int goWitnessTimeoutSeconds) {
+        this.goWitnessTimeoutSeconds = goWitnessTimeoutSeconds;
+    }
+    
+    public void setProbeResults(Map<String, ProbeResult> probeResults) {
+        this.probeResults = probeResults;
+    }
+    
+    // 0 sizes the shards from the available cores and memory
+    public void setMaxShards(int maxShards) {
+        this.maxShards = maxShards;
+    }
+    
+    public void setProcessSupervisor(ProcessSupervisor supervisor) {
+        this.supervisor = supervisor;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamingPipeline {
+    // Marks the end of a stage's output; never a valid subdomain
+    private static final String END_OF_STREAM = "";
+    
+    private final SubdomainFinder subdomainFinder;
+    private final LiveChecker liveChecker;
+    private final ScreenshotCapturer screenshotCapturer;
+    
+    private int queueCapacity = 10000;
+    private int probeWorkers = 50;
+    private int screenshotBatchSize = 25;
+    private long screenshotFlushMillis = 10000;
+    
+    public StreamingPipeline(SubdomainFinder subdomainFinder, LiveChecker liveChecker,
+                             ScreenshotCapturer screenshotCapturer) {
+        this.subdomainFinder = subdomainFinder;
+        this.liveChecker = liveChecker;
+        this.screenshotCapturer = screenshotCapturer;
+    }
+    
+    public PipelineResult run(String domain, List<String> selectedTools, Scanner scanner,
+                              String outputFolder, boolean captureScreenshots) {
+        // All interactive configuration happens before any stage starts
+        Map<String, String> commands = subdomainFinder.configureCommands(scanner, selectedTools, domain);
+        String liveTool = configureLiveTool(scanner);
+        String screenshotDir = captureScreenshots
+            ? screenshotCapturer.prepareScreenshots(outputFolder, scanner) : null;
+        if (screenshotDir != null) {
+            liveChecker.configureFingerprinting(scanner);
+        }
+        
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Starting streaming pipeline...");
+        System.out.println("=".repeat(50));
+        System.out.printf("Live check: %s, queue capacity: %d, screenshots: %s\n",
+                        liveTool != null ? liveTool : probeWorkers + " probe workers",
+                        queueCapacity, screenshotDir != null ? "on" : "off");
+        
+        BlockingQueue<String> discoveredQueue = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<String> liveQueue = new ArrayBlockingQueue<>(queueCapacity);
+        // Unbounded so the external tool's output is never held up; it only holds live hosts
+        BlockingQueue<String> confirmedQueue = new LinkedBlockingQueue<>();
+        Set<String> liveSubdomains = ConcurrentHashMap.newKeySet();
+        PipelineResult result = new PipelineResult();
+        long startTime = System.currentTimeMillis();
+        
+        ExecutorService stages = Executors.newFixedThreadPool(probeWorkers + 2);
+        
+        Future<Set<String>> discovery = stages.submit(() -> {
+            try {
+                return subdomainFinder.executeCommands(commands, subdomain -> put(discoveredQueue, subdomain));
+            } finally {
+                put(discoveredQueue, END_OF_STREAM);
+            }
+        });
+        
+        if (liveTool != null) {
+            // A single external prober reads hosts from its stdin as discovery reports them. Its output
+            // is read on the pump thread, which only records each host; fingerprinting waits on a
+            // request, so the workers below do it
+            stages.submit(() -> {
+                try {
+                    liveChecker.checkLiveWithExternalTool(drain(discoveredQueue), liveTool, subdomain -> {
+                        if (recordLive(subdomain, liveSubdomains, result, startTime)) {
+                            put(confirmedQueue, subdomain);
+                        }
+                    });
+                } catch (IOException e) {
+                    System.err.println("Error during external tool checking: " + e.getMessage());
+                } finally {
+                    // The tool may have failed, timed out or exited early without reading all of
+                    // its input; whatever is left is consumed so discovery never blocks on a full queue
+                    int[] unchecked = {0};
+                    drain(discoveredQueue).forEachRemaining(subdomain -> unchecked[0]++);
+                    if (unchecked[0] > 0) {
+                        System.out.printf("%s stopped before reading %d discovered hosts, they were not checked\n",
+                                        liveTool, unchecked[0]);
+                    }
+                    put(confirmedQueue, END_OF_STREAM);
+                }
+            });
+        }
+        
+        // The workers probe discovered hosts themselves, or fingerprint the ones the external tool found live
+        AtomicInteger activeWorkers = new AtomicInteger(probeWorkers);
+        for (int i = 0; i < probeWorkers; i++) {
+            stages.submit(() -> {
+                try {
+                    if (liveTool != null) {
+                        drain(confirmedQueue).forEachRemaining(subdomain -> forwardLive(subdomain, liveQueue));
+                    } else {
+                        probeLoop(discoveredQueue, liveQueue, liveSubdomains, result, startTime);
+                    }
+                } finally {
+                    if (activeWorkers.decrementAndGet() == 0) {
+                        put(liveQueue, END_OF_STREAM);
+                    }
+                }
+            });
+        }
+        
+        Future<?> screenshots = stages.submit(() -> screenshotLoop(liveQueue, screenshotDir));
+        
+        try {
+            result.allSubdomains = discovery.get();
+            screenshots.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Streaming pipeline interrupted");
+        } catch (ExecutionException e) {
+            System.err.println("Error in streaming pipeline: " + e.getCause().getMessage());
+        } finally {
+            stages.shutdownNow();
+        }
+        
+        result.liveSubdomains = liveSubdomains;
+        long endTime = System.currentTimeMillis();
+        
+        if (screenshotDir != null) {
+            screenshotCapturer.finishScreenshots(screenshotDir);
+        }
+        
+        subdomainFinder.displayEnumerationSummary(result.allSubdomains, new ArrayList<>(commands.keySet()));
+        System.out.printf("\nStreaming pipeline completed in %.2fs: %d discovered, %d live\n",
+                        (endTime - startTime) / 1000.0, result.allSubdomains.size(), liveSubdomains.size());
+        if (result.firstLiveMillis >= 0) {
+            System.out.printf("First live host confirmed after %.2fs\n", result.firstLiveMillis / 1000.0);
+        }
+        
+        return result;
+    }
+    
+    private void probeLoop(BlockingQueue<String> discoveredQueue, BlockingQueue<String> liveQueue,
+                           Set<String> liveSubdomains, PipelineResult result, long startTime) {
+        while (true) {
+            String subdomain = take(discoveredQueue);
+            if (subdomain == null) {
+                return;
+            }
+            if (subdomain.equals(END_OF_STREAM)) {
+                // Leave the marker for the remaining workers
+                put(discoveredQueue, END_OF_STREAM);
+                return;
+            }
+            
+            if (liveChecker.isSubdomainLive(subdomain)) {
+                System.out.printf("Live: %s\n", subdomain);
+                if (recordLive(subdomain, liveSubdomains, result, startTime)) {
+                    forwardLive(subdomain, liveQueue);
+                }
+            }
+        }
+    }
+    
+    // False when the host was already recorded
+    private boolean recordLive(String subdomain, Set<String> liveSubdomains, PipelineResult result, long startTime) {
+        if (!liveSubdomains.add(subdomain)) {
+            return false;
+        }
+        synchronized (result) {
+            if (result.firstLiveMillis < 0) {
+                result.firstLiveMillis = System.currentTimeMillis() - startTime;
+            }
+        }
+        return true;
+    }
+    
+    // Hosts serving a page that was already seen are not screenshotted again
+    private void forwardLive(String subdomain, BlockingQueue<String> liveQueue) {
+        if (liveChecker.fingerprintHost(subdomain)) {
+            put(liveQueue, subdomain);
+        }
+    }
+    
+    private String configureLiveTool(Scanner scanner) {
+        System.out.println("\nStreaming live check:");
+        System.out.println("1. java - " + probeWorkers + " built-in probe workers");
+        System.out.println("2. httprobe - hosts are streamed to its stdin");
+        System.out.println("3. httpx - hosts are streamed to its stdin");
+        System.out.print("Select tool (1-3, default: java): ");
+        String choice = scanner.nextLine().trim();
+        
+        String tool = choice.equals("2") ? "httprobe" : choice.equals("3") ? "httpx" : null;
+        if (tool != null && !liveChecker.isExternalToolAvailable(tool)) {
+            System.out.println(tool + " not found, using the built-in probe workers");
+            return null;
+        }
+        return tool;
+    }
+    
+    // Hands out queued names until the end marker, which is left in place for other readers
+    private static Iterator<String> drain(BlockingQueue<String> queue) {
+        return new Iterator<String>() {
+            private String next;
+            
+            public boolean hasNext() {
+                if (next == null) {
+                    next = take(queue);
+                    if (END_OF_STREAM.equals(next)) {
+                        put(queue, END_OF_STREAM);
+                        next = null;
+                        return false;
+                    }
+                }
+                return next != null;
+            }
+            
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String value = next;
+                next = null;
+                return value;
+            }
+        };
+    }
+    
+    private void screenshotLoop(BlockingQueue<String> liveQueue, String screenshotDir) {
+        List<String> batch = new ArrayList<>();
+        int batchNumber = 0;
+        
+        while (true) {
+            String subdomain;
+            try {
+                subdomain = liveQueue.poll(screenshotFlushMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            
+            boolean finished = END_OF_STREAM.equals(subdomain);
+            if (subdomain != null && !finished) {
+                batch.add(subdomain);
+            }
+            
+            // Flush on a full batch, on a quiet period, or at the end of the stream
+            boolean flush = batch.size() >= screenshotBatchSize || subdomain == null || finished;
+            if (flush && !batch.isEmpty() && screenshotDir != null) {
+                screenshotCapturer.captureBatch(batch, screenshotDir, ++batchNumber);
+            }
+            if (flush) {
+                batch.clear();
+            }
+            
+            if (finished) {
+                return;
+            }
+        }
+    }
+    
+    private static void put(BlockingQueue<String> queue, String value) {
+        try {
+            queue.put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static String take(BlockingQueue<String> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+    
+    public void setProbeWorkers(int probeWorkers) {
+        this.probeWorkers = probeWorkers;
+    }
+    
+    public void setScreenshotBatchSize(int screenshotBatchSize) {
+        this.screenshotBatchSize = screenshotBatchSize;
+    }
+    
+    public static class PipelineResult {
+        Set<String> allSubdomains = new HashSet<>();
+        Set<String> liveSubdomains = new HashSet<>();
+        long firstLiveMillis = -1;
+    }
+}
\ No newline at end of file
@@ -5,15 +5,23 @@ public class SubMergeXMain {
     private LiveChecker liveChecker;
     private ScreenshotCapturer screenshotCapturer;
     private FileManager fileManager;
+    private StreamingPipeline streamingPipeline;
+    private RecursiveEnumerator recursiveEnumerator;
     
     public SubMergeXMain() {
         this.subdomainFinder = new SubdomainFinder();
         this.liveChecker = new LiveChecker();
         this.screenshotCapturer = new ScreenshotCapturer();
+        this.screenshotCapturer.setProbeResults(liveChecker.getProbeResults());
         this.fileManager = new FileManager();
+        this.streamingPipeline = new StreamingPipeline(subdomainFinder, liveChecker, screenshotCapturer);
+        this.recursiveEnumerator = new RecursiveEnumerator(subdomainFinder);
     }
     
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(BatchRunner.runFromArgs(args));
+        }
         SubMergeXMain app = new SubMergeXMain();
         app.run();
     }
@@ -24,6 +32,7 @@ public class SubMergeXMain {
 
         try {
             String domain = getDomain(scanner);
+            liveChecker.setScope(domain);
             
             // Display main menu and get user choices
             EnumerationConfig config = displayMainMenu(scanner);
@@ -36,20 +45,51 @@ public class SubMergeXMain {
             Set<String> allSubdomains = new HashSet<>();
             Set<String> liveSubdomains = new HashSet<>();
             String outputFolder = "";
+            Set<String> deltaSubdomains = null;
             List<String> selectedTools = new ArrayList<>();
             
+            boolean streaming = config.findSubdomains && config.checkLiveSubdomains
+                                && askStreamingMode(scanner);
+            
             System.out.println("\n" + "=".repeat(50));
             System.out.println("Starting SubMergeX operations...");
             System.out.println("=".repeat(50));
             
+            // Streaming mode: discovery, live checking and screenshots overlap
+            if (streaming) {
+                selectedTools = subdomainFinder.selectTools(scanner);
+                outputFolder = fileManager.createOutputFolder(domain);
+                StreamingPipeline.PipelineResult result = streamingPipeline.run(
+                    domain, selectedTools, scanner, outputFolder, config.captureScreenshots);
+                allSubdomains = result.allSubdomains;
+                liveSubdomains = result.liveSubdomains;
+                
+                fileManager.saveSubdomains(outputFolder, domain, allSubdomains, "all");
+                if (!liveSubdomains.isEmpty()) {
+                    fileManager.saveSubdomains(outputFolder, domain, liveSubdomains, "live");
+                    fileManager.saveLiveUrls(outputFolder, domain, liveSubdomains, liveChecker.getProbeResults());
+                    fileManager.savePageGroups(outputFolder, domain, liveChecker.getPageGroups());
+                    if (config.captureScreenshots) {
+                        screenshotCapturer.displayScreenshotSummary(outputFolder, screenshotCapturer.countTargetUrls(
+                            screenshotTargets(liveChecker.getPageGroups(), liveSubdomains)));
+                    }
+                }
+            }
+            
             // Step 1: Find subdomains (if selected)
-            if (config.findSubdomains) {
+            if (config.findSubdomains && !streaming) {
                 selectedTools = subdomainFinder.selectTools(scanner);
                 allSubdomains = subdomainFinder.findSubdomains(domain, selectedTools, scanner);
+                if (!allSubdomains.isEmpty() && askRecursiveMode(scanner)) {
+                    recursiveEnumerator.run(domain, selectedTools, allSubdomains);
+                }
                 
                 if (!allSubdomains.isEmpty()) {
                     outputFolder = fileManager.createOutputFolder(domain);
                     fileManager.saveSubdomains(outputFolder, domain, allSubdomains, "all");
+                    if (config.checkLiveSubdomains || config.captureScreenshots) {
+                        deltaSubdomains = handleIncrementalMode(scanner, domain, outputFolder);
+                    }
                 } else {
                     System.out.println("No subdomains found. Check your tools and commands.");
                     if (!config.checkLiveSubdomains && !config.captureScreenshots) {
@@ -59,7 +99,7 @@ public class SubMergeXMain {
             }
             
             // Step 2: Check live subdomains (if selected)
-            if (config.checkLiveSubdomains) {
+            if (config.checkLiveSubdomains && !streaming) {
                 if (allSubdomains.isEmpty()) {
                     allSubdomains = handleMissingSubdomains(scanner, domain);
                     if (allSubdomains.isEmpty()) {
@@ -71,18 +111,27 @@ public class SubMergeXMain {
                     outputFolder = fileManager.createOutputFolder(domain);
                 }
                 
-                if (!allSubdomains.isEmpty()) {
-                    liveSubdomains = liveChecker.checkLiveSubdomains(allSubdomains, scanner, outputFolder);
+                Set<String> probeTargets = deltaSubdomains != null ? deltaSubdomains : allSubdomains;
+                if (!probeTargets.isEmpty()) {
+                    liveSubdomains = liveChecker.checkLiveSubdomains(probeTargets, scanner, outputFolder);
                     if (!liveSubdomains.isEmpty()) {
                         fileManager.saveSubdomains(outputFolder, domain, liveSubdomains, "live");
-                        fileManager.saveLiveUrls(outputFolder, domain, liveSubdomains);
+                        fileManager.saveLiveUrls(outputFolder, domain, liveSubdomains, liveChecker.getProbeResults());
+                        fileManager.savePageGroups(outputFolder, domain, liveChecker.getPageGroups());
+                    }
+                    
+                    Set<String> harvested = liveChecker.getHarvestedNames();
+                    if (!harvested.isEmpty()) {
+                        allSubdomains.addAll(harvested);
+                        fileManager.saveSubdomains(outputFolder, domain, harvested, "san");
+                        fileManager.saveSubdomains(outputFolder, domain, allSubdomains, "all");
                     }
                 }
             }
             
             // Step 3: Capture screenshots (if selected)
-            if (config.captureScreenshots) {
-                if (liveSubdomains.isEmpty()) {
+            if (config.captureScreenshots && !streaming) {
+                if (liveSubdomains.isEmpty() && deltaSubdomains == null) {
                     liveSubdomains = handleMissingLiveSubdomains(scanner, domain, allSubdomains, outputFolder);
                 }
                 
@@ -90,8 +139,10 @@ public class SubMergeXMain {
                     if (outputFolder.isEmpty()) {
                         outputFolder = fileManager.createOutputFolder(domain);
                     }
-                    screenshotCapturer.captureScreenshots(liveSubdomains, outputFolder, scanner);
-                    screenshotCapturer.displayScreenshotSummary(outputFolder, liveSubdomains.size() * 2);
+                    Set<String> screenshotTargets = screenshotTargets(liveChecker.getPageGroups(), liveSubdomains);
+                    screenshotCapturer.captureScreenshots(screenshotTargets, outputFolder, scanner);
+                    screenshotCapturer.displayScreenshotSummary(outputFolder,
+                                                                screenshotCapturer.countTargetUrls(screenshotTargets));
                 } else {
                     System.out.println("No live subdomains available for screenshots");
                 }
@@ -99,6 +150,7 @@ public class SubMergeXMain {
             
             // Generate final summary
             if (!outputFolder.isEmpty()) {
+                fileManager.addReportStats(liveChecker.getReportStats());
                 fileManager.generateSummaryReport(outputFolder, domain, allSubdomains, 
                                                 liveSubdomains, selectedTools, config.captureScreenshots);
             }
@@ -134,17 +186,15 @@ public class SubMergeXMain {
             domain = scanner.nextLine().trim();
             if (domain.isEmpty()) {
                 System.out.println("Domain cannot be empty. Please try again.");
-            } else if (!isValidDomain(domain)) {
+            } else if (DomainName.normalize(domain) == null) {
                 System.out.println("Invalid domain format. Please enter a valid domain.");
                 domain = "";
+            } else {
+                domain = DomainName.normalize(domain);
             }
         } while (domain.isEmpty());
         return domain;
     }
-
-    private boolean isValidDomain(String domain) {
-        return domain.matches("^[a-zA-Z0-9][a-zA-Z0-9-]{0,61}[a-zA-Z0-9]?\\.[a-zA-Z]{2,}$");
-    }
     
     private EnumerationConfig displayMainMenu(Scanner scanner) {
         EnumerationConfig config = new EnumerationConfig();
@@ -251,6 +301,55 @@ public class SubMergeXMain {
         return config;
     }
     
+    // One host per distinct page when live checking grouped duplicate pages
+    static Set<String> screenshotTargets(PageGroups pageGroups, Set<String> liveSubdomains) {
+        if (pageGroups == null || pageGroups.getHostCount() == 0) {
+            return liveSubdomains;
+        }
+        
+        Set<String> targets = new LinkedHashSet<>();
+        for (String representative : pageGroups.getRepresentatives()) {
+            if (liveSubdomains.contains(representative)) {
+                targets.add(representative);
+            }
+        }
+        System.out.printf("Screenshotting %d distinct pages instead of %d live hosts\n",
+                        targets.size(), liveSubdomains.size());
+        return targets;
+    }
+    
+    private boolean askStreamingMode(Scanner scanner) {
+        System.out.println("\nStreaming mode probes each subdomain as soon as a tool reports it");
+        System.out.println("and screenshots live hosts while enumeration is still running.");
+        System.out.print("Use streaming mode? (y/n, default: n): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        return choice.equals("y") || choice.equals("yes");
+    }
+    
+    private boolean askRecursiveMode(Scanner scanner) {
+        System.out.println("\nRecursive mode runs the same tools again on sub-zones with many names,");
+        System.out.println("such as corp.example.com, within a depth, time and tool-run budget.");
+        System.out.print("Enumerate sub-zones recursively? (y/n, default: n): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        return choice.equals("y") || choice.equals("yes");
+    }
+    
+    private Set<String> handleIncrementalMode(Scanner scanner, String domain, String outputFolder) {
+        String previousFolder = fileManager.findPreviousRunFolder(domain, outputFolder);
+        if (previousFolder == null) {
+            return null;
+        }
+        
+        System.out.println("\nPrevious run found: " + previousFolder);
+        System.out.print("Only check and screenshot subdomains that are new since then? (y/n, default: n): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        if (!choice.equals("y") && !choice.equals("yes")) {
+            return null;
+        }
+        
+        return fileManager.computeDelta(previousFolder, outputFolder, domain);
+    }
+    
     private Set<String> handleMissingSubdomains(Scanner scanner, String domain) {
         System.out.print("\nEnter path to subdomain list file (or press Enter to enumerate first): ");
         String filePath = scanner.nextLine().trim();
@@ -1,26 +1,59 @@
-import java.io.*;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.SocketTimeoutException;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 public class SubdomainFinder {
     private static final Map<String, String> DEFAULT_COMMANDS = new HashMap<>();
+    // Marks a command that runs an in-process source instead of a shell command: "builtin:<source> <domain>"
+    private static final String BUILTIN_PREFIX = "builtin:";
     
     static {
         DEFAULT_COMMANDS.put("subfinder", "subfinder -d %s -silent");
         DEFAULT_COMMANDS.put("assetfinder", "assetfinder --subs-only %s");
         DEFAULT_COMMANDS.put("amass", "amass enum -passive -d %s");
         DEFAULT_COMMANDS.put("findomain", "findomain -t %s -q");
-        DEFAULT_COMMANDS.put("crt.sh", "curl -s 'https://crt.sh/?q=%%25.%s&output=json' | jq -r '.[].name_value' | sort -u");
         DEFAULT_COMMANDS.put("sublist3r", "sublist3r -d %s -o /dev/stdout");
     }
     
+    private int maxConcurrentTools = 6;
+    private int toolTimeoutSeconds = 300;
+    private long maxPermutations = 1_000_000;
+    private ProcessSupervisor supervisor = new ProcessSupervisor();
+    private final Map<String, EnumerationSource> sources = new LinkedHashMap<>();
+    
+    public SubdomainFinder() {
+        register(new CrtShSource());
+        register(new BruteForceSource());
+    }
+    
+    // Sources are listed after the external tools and can be replaced by name
+    public void addSource(EnumerationSource source) {
+        register(source);
+    }
+    
+    // The constructor uses this rather than the overridable addSource
+    private void register(EnumerationSource source) {
+        sources.put(source.getName(), source);
+    }
+    
+    public EnumerationSource getSource(String name) {
+        return sources.get(name);
+    }
+    
     public Set<String> findSubdomains(String domain, List<String> selectedTools, Scanner scanner) {
         System.out.println("\n" + "=".repeat(50));
         System.out.println("Starting subdomain enumeration...");
         System.out.println("=".repeat(50));
         
-        List<String> commands = configureCommands(scanner, selectedTools, domain);
+        Map<String, String> commands = configureCommands(scanner, selectedTools, domain);
         Set<String> allSubdomains = executeCommands(commands);
+        if (!allSubdomains.isEmpty() && askPermutations(scanner)) {
+            resolvePermutations(domain, allSubdomains, null);
+        }
         
         if (!allSubdomains.isEmpty()) {
             displayEnumerationSummary(allSubdomains, selectedTools);
@@ -36,6 +69,7 @@ public class SubdomainFinder {
         System.out.println("=".repeat(45));
         
         List<String> availableTools = new ArrayList<>(DEFAULT_COMMANDS.keySet());
+        availableTools.addAll(sources.keySet());
         for (int i = 0; i < availableTools.size(); i++) {
             System.out.printf("%d. %s\n", i + 1, availableTools.get(i));
         }
@@ -84,16 +118,22 @@ public class SubdomainFinder {
         return selectedTools;
     }
     
-    private List<String> configureCommands(Scanner scanner, List<String> tools, String domain) {
+    public Map<String, String> configureCommands(Scanner scanner, List<String> tools, String domain) {
         System.out.println("\nCommand Configuration:");
         System.out.println("=".repeat(40));
         
-        List<String> commands = new ArrayList<>();
+        Map<String, String> commands = new LinkedHashMap<>();
         
         for (String tool : tools) {
-            String defaultCmd = String.format(DEFAULT_COMMANDS.get(tool), domain);
             System.out.println("\nTool: " + tool);
-            System.out.println("Default command: " + defaultCmd);
+            String defaultCmd;
+            if (sources.containsKey(tool)) {
+                defaultCmd = BUILTIN_PREFIX + tool + " " + domain;
+                System.out.println("Default: built-in (" + sources.get(tool).describe(domain) + ")");
+            } else {
+                defaultCmd = String.format(DEFAULT_COMMANDS.get(tool), domain);
+                System.out.println("Default command: " + defaultCmd);
+            }
             System.out.print("Use default? (y/n/custom): ");
             
             String choice = scanner.nextLine().trim().toLowerCase();
@@ -102,7 +142,10 @@ public class SubdomainFinder {
                 case "y":
                 case "yes":
                 case "":
-                    commands.add(defaultCmd);
+                    if (sources.containsKey(tool)) {
+                        sources.get(tool).configure(scanner);
+                    }
+                    commands.put(tool, defaultCmd);
                     break;
                 case "n":
                 case "no":
@@ -113,11 +156,14 @@ public class SubdomainFinder {
                     System.out.print("Enter custom command for " + tool + ": ");
                     String customCmd = scanner.nextLine().trim();
                     if (!customCmd.isEmpty()) {
-                        commands.add(customCmd);
+                        commands.put(tool, customCmd);
                     }
                     break;
                 default:
-                    commands.add(defaultCmd);
+                    if (sources.containsKey(tool)) {
+                        sources.get(tool).configure(scanner);
+                    }
+                    commands.put(tool, defaultCmd);
                     break;
             }
         }
@@ -125,64 +171,210 @@ public class SubdomainFinder {
         return commands;
     }
     
-    private Set<String> executeCommands(List<String> commands) {
-        Set<String> allSubdomains = Collections.synchronizedSet(new HashSet<>());
+    // The default command for every tool, without asking; custom commands are not carried over
+    public Map<String, String> defaultCommands(List<String> tools, String domain) {
+        Map<String, String> commands = new LinkedHashMap<>();
+        for (String tool : tools) {
+            if (sources.containsKey(tool)) {
+                commands.put(tool, BUILTIN_PREFIX + tool + " " + domain);
+            } else if (DEFAULT_COMMANDS.containsKey(tool)) {
+                commands.put(tool, String.format(DEFAULT_COMMANDS.get(tool), domain));
+            }
+        }
+        return commands;
+    }
+    
+    private Set<String> executeCommands(Map<String, String> commands) {
+        return executeCommands(commands, null);
+    }
+    
+    public Set<String> executeCommands(Map<String, String> commands, Consumer<String> onNewSubdomain) {
+        Set<String> allSubdomains = new SubdomainStore();
+        if (commands.isEmpty()) {
+            return allSubdomains;
+        }
         
-        for (int i = 0; i < commands.size(); i++) {
-            String command = commands.get(i);
-            System.out.printf("\n[%d/%d] Running: %s\n", i + 1, commands.size(), command);
-            
-            long startTime = System.currentTimeMillis();
-            Set<String> results = runCommand(command);
-            long endTime = System.currentTimeMillis();
-            
-            System.out.printf("Found %d subdomains in %.2fs\n", 
-                            results.size(), (endTime - startTime) / 1000.0);
-            
-            allSubdomains.addAll(results);
+        int poolSize = Math.max(1, Math.min(maxConcurrentTools, commands.size()));
+        System.out.printf("\nLaunching %d tools (max %d concurrently, timeout %ds per tool)\n",
+                        commands.size(), poolSize, toolTimeoutSeconds);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+        List<Future<ToolResult>> futures = new ArrayList<>();
+        
+        long startTime = System.currentTimeMillis();
+        
+        for (Map.Entry<String, String> entry : commands.entrySet()) {
+            String tool = entry.getKey();
+            String command = entry.getValue();
+            String[] builtin = command.startsWith(BUILTIN_PREFIX)
+                ? command.substring(BUILTIN_PREFIX.length()).trim().split("\\s+") : null;
+            if (builtin != null && builtin.length == 2 && sources.containsKey(builtin[0])) {
+                EnumerationSource source = sources.get(builtin[0]);
+                futures.add(executor.submit(() -> runSource(tool, source, builtin[1], allSubdomains, onNewSubdomain)));
+            } else {
+                futures.add(executor.submit(() -> runCommand(tool, command, allSubdomains, onNewSubdomain)));
+            }
         }
         
+        List<ToolResult> results = new ArrayList<>();
+        for (Future<ToolResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (Exception e) {
+                System.err.println("Error running tool: " + e.getMessage());
+            }
+        }
+        
+        executor.shutdown();
+        long endTime = System.currentTimeMillis();
+        
+        displayToolTimings(results, (endTime - startTime) / 1000.0);
         return allSubdomains;
     }
     
-    private Set<String> runCommand(String command) {
-        Set<String> outputLines = new HashSet<>();
-        try {
-            ProcessBuilder builder = new ProcessBuilder("bash", "-c", command);
-            builder.redirectErrorStream(true);
-            Process process = builder.start();
-
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    line = line.trim();
-                    if (!line.isEmpty() && isValidSubdomain(line)) {
-                        outputLines.add(line.toLowerCase());
+    private ToolResult runCommand(String tool, String command, Set<String> sink,
+                                  Consumer<String> onNewSubdomain) {
+        ToolResult result = new ToolResult(tool);
+        System.out.printf("[%s] Running: %s\n", tool, command);
+        
+        // Tools mix names into stderr too, so both streams are parsed; anything else is noise
+        Consumer<String> onLine = collector(result, sink, onNewSubdomain);
+        
+        ProcessSupervisor.Result run = supervisor.run(tool, command, toolTimeoutSeconds * 1000L, onLine, onLine);
+        if (run.getError() != null) {
+            System.err.println("[" + tool + "] Error running command: " + run.getError());
+        }
+        
+        result.seconds = run.getWallSeconds();
+        result.cpuSeconds = run.getCpuSeconds();
+        result.bytes = run.getStdoutBytes() + run.getStderrBytes();
+        result.timedOut = run.isTimedOut();
+        if (result.timedOut) {
+            System.out.printf("[%s] Timed out after %ds and was terminated\n", tool, toolTimeoutSeconds);
+        }
+        System.out.printf("[%s] Found %d subdomains (%d new) in %.2fs\n",
+                        tool, result.found, result.added, result.seconds);
+        return result;
+    }
+    
+    // Counts every valid name and passes new ones on
+    private Consumer<String> collector(ToolResult result, Set<String> sink, Consumer<String> onNewSubdomain) {
+        return line -> {
+            String subdomain = DomainName.normalize(line);
+            if (subdomain != null) {
+                synchronized (result) {
+                    result.found++;
+                }
+                if (sink.add(subdomain)) {
+                    synchronized (result) {
+                        result.added++;
+                    }
+                    if (onNewSubdomain != null) {
+                        onNewSubdomain.accept(subdomain);
                     }
                 }
             }
-
-            if (!process.waitFor(300, TimeUnit.SECONDS)) {
-                process.destroyForcibly();
-                System.out.println("Command timed out and was terminated");
-            }
-
-        } catch (IOException | InterruptedException e) {
-            System.err.println("Error running command: " + e.getMessage());
+        };
+    }
+    
+    // Sources run on the pool thread itself, so its CPU time is the source's
+    private ToolResult runSource(String tool, EnumerationSource source, String domain, Set<String> sink,
+                                 Consumer<String> onNewSubdomain) {
+        ToolResult result = new ToolResult(tool);
+        System.out.printf("[%s] Running built-in: %s\n", tool, source.describe(domain));
+        
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long startTime = System.nanoTime();
+        try {
+            result.bytes = source.enumerate(domain, toolTimeoutSeconds * 1000L, collector(result, sink, onNewSubdomain));
+        } catch (SocketTimeoutException e) {
+            result.timedOut = true;
+            System.out.printf("[%s] Timed out after %ds, keeping the names so far\n", tool, toolTimeoutSeconds);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("[" + tool + "] Error: " + e.getMessage());
         }
-        return outputLines;
+        result.seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        result.cpuSeconds = Math.max(0, threads.getCurrentThreadCpuTime() - cpuStart) / 1_000_000_000.0;
+        
+        System.out.printf("[%s] Found %d subdomains (%d new) in %.2fs\n",
+                        tool, result.found, result.added, result.seconds);
+        return result;
     }
     
-    private boolean isValidSubdomain(String subdomain) {
-        return subdomain.matches("^[a-zA-Z0-9][a-zA-Z0-9.-]*\\.[a-zA-Z]{2,}$") &&
-               !subdomain.startsWith(".") &&
-               !subdomain.endsWith(".") &&
-               subdomain.length() > 3;
+    private boolean askPermutations(Scanner scanner) {
+        System.out.print("\nResolve permutations of the found names (api-dev2, api-staging, ...)? (y/n, default: n): ");
+        String choice = scanner.nextLine().trim().toLowerCase();
+        return choice.equals("y") || choice.equals("yes");
     }
     
-    private void displayEnumerationSummary(Set<String> subdomains, List<String> tools) {
+    // Permutations go through the brute-force source so they use the resolvers configured there
+    public int resolvePermutations(String domain, Set<String> subdomains, Consumer<String> onNewSubdomain) {
+        DomainName scope = DomainName.parse(domain);
+        if (scope == null) {
+            return 0;
+        }
+        EnumerationSource source = sources.get("bruteforce");
+        BruteForceSource resolver = source instanceof BruteForceSource ? (BruteForceSource) source : new BruteForceSource();
+        PermutationEngine permutations = new PermutationEngine(scope.toString(), subdomains);
+        permutations.setLimit(maxPermutations);
+        System.out.printf("\n[permutations] Generating up to %d candidates from %d found names\n",
+                        maxPermutations, permutations.getSeedCount());
+        
+        ToolResult result = new ToolResult("permutations");
+        try {
+            resolver.resolve("permutations", scope, permutations, toolTimeoutSeconds * 1000L,
+                             collector(result, subdomains, onNewSubdomain));
+        } catch (SocketTimeoutException e) {
+            System.out.printf("[permutations] Timed out after %ds, keeping the names so far\n", toolTimeoutSeconds);
+        } catch (IOException e) {
+            System.err.println("[permutations] Error: " + e.getMessage());
+        }
+        BloomFilter filter = permutations.getFilter();
+        System.out.printf("[permutations] %d candidates tried, %d duplicates skipped (filter %s, %.1f%% full)\n",
+                        permutations.getEmitted(), permutations.getDuplicates(), formatBytes(filter.getSizeBytes()),
+                        filter.getFillRatio() * 100);
+        System.out.printf("[permutations] Found %d new subdomains\n", result.added);
+        return result.added;
+    }
+    
+    private void displayToolTimings(List<ToolResult> results, double totalSeconds) {
+        System.out.println("\nTool timings:");
+        results.stream()
+               .sorted((a, b) -> Double.compare(b.seconds, a.seconds))
+               .forEach(r -> System.out.printf("  %-12s %8.2fs  %7.2fs cpu  %9s  %6d found  %6d new%s\n",
+                       r.tool, r.seconds, r.cpuSeconds, formatBytes(r.bytes), r.found, r.added,
+                       r.timedOut ? "  (timed out)" : ""));
+        System.out.printf("Total enumeration time: %.2fs\n", totalSeconds);
+    }
+    
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+    
+    public void setMaxConcurrentTools(int maxConcurrentTools) {
+        this.maxConcurrentTools = maxConcurrentTools;
+    }
+    
+    public void setToolTimeoutSeconds(int toolTimeoutSeconds) {
+        this.toolTimeoutSeconds = toolTimeoutSeconds;
+    }
+    
+    public void setMaxPermutations(long maxPermutations) {
+        this.maxPermutations = maxPermutations;
+    }
+    
+    public void setProcessSupervisor(ProcessSupervisor supervisor) {
+        this.supervisor = supervisor;
+    }
+    
+    public void displayEnumerationSummary(Set<String> subdomains, List<String> tools) {
         System.out.println("\n" + "=".repeat(50));
         System.out.println("SUBDOMAIN ENUMERATION COMPLETE");
         System.out.println("=".repeat(50));
@@ -199,4 +391,18 @@ public class SubdomainFinder {
             System.out.println("  ... and " + (subdomains.size() - 15) + " more");
         }
     }
+    
+    private static class ToolResult {
+        final String tool;
+        int found = 0;
+        int added = 0;
+        double seconds = 0;
+        double cpuSeconds = 0;
+        long bytes = 0;
+        boolean timedOut = false;
+        
+        ToolResult(String tool) {
+            this.tool = tool;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+public class SubdomainListLoader {
+    // Longest line worth looking at; anything longer cannot be a valid name
+    private static final int MAX_LINE = 1024;
+    
+    private int chunkSize = 32 * 1024 * 1024;
+    private long bytesRead;
+    
+    public Set<String> load(Path file) throws IOException {
+        SubdomainStore subdomains = new SubdomainStore();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            bytesRead = size;
+            
+            List<long[]> chunks = new ArrayList<>();
+            for (long start = 0; start < size; start += chunkSize) {
+                chunks.add(new long[] {start, Math.min(size, start + chunkSize)});
+            }
+            
+            chunks.parallelStream().forEach(chunk -> {
+                try {
+                    parseChunk(channel, size, chunk[0], chunk[1], subdomains);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        
+        return subdomains;
+    }
+    
+    // Handles every line that starts inside [start, end); the mapping reaches a little past
+    // the end so the last line can be finished, and one byte before to spot a split line
+    private void parseChunk(FileChannel channel, long size, long start, long end, SubdomainStore sink)
+            throws IOException {
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(size, end + MAX_LINE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        
+        int position = (int) (start - mapStart);
+        int limit = (int) (end - mapStart);
+        int mapLimit = buffer.limit();
+        
+        if (start > 0 && buffer.get(0) != '\n') {
+            // The first line began in the previous chunk
+            while (position < mapLimit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+        
+        byte[] line = new byte[MAX_LINE];
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < mapLimit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            boolean complete = lineEnd < mapLimit || mapEnd == size;
+            
+            if (complete && lineEnd - position <= MAX_LINE) {
+                int length = lineEnd - position;
+                for (int i = 0; i < length; i++) {
+                    line[i] = buffer.get(position + i);
+                }
+                DomainName subdomain = DomainName.parse(line, 0, length);
+                if (subdomain != null) {
+                    sink.add(subdomain);
+                }
+            }
+            position = lineEnd + 1;
+        }
+    }
+    
+    public long getBytesRead() {
+        return bytesRead;
+    }
+    
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,419 @@
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Concurrent set of host names stored as a trie of reversed labels, so a shared suffix such as
+// ".example.com" is kept once. Leaves are plain label byte arrays rather than nodes. Every node
+// splits its children into stripes by label hash, each with its own table and lock, so producers
+// adding millions of names under one apex rarely wait on each other. Iteration is in canonical
+// DNS order (by top-level label first) and is weakly consistent with concurrent changes.
+public class SubdomainStore extends AbstractSet<String> {
+    private static final int INITIAL_SLOTS = 4;
+    private static final int STRIPE_BITS = 4;
+    
+    private final Node root = new Node(new byte[0]);
+    private final AtomicInteger size = new AtomicInteger();
+    private final Map<String, byte[]> zoneLabels = new ConcurrentHashMap<>();
+    
+    public SubdomainStore() {
+    }
+    
+    public SubdomainStore(Collection<String> names) {
+        for (String name : names) {
+            DomainName domain = DomainName.parse(name);
+            if (domain != null) {
+                insert(domain);
+            }
+        }
+    }
+    
+    @Override
+    public boolean add(String name) {
+        DomainName domain = DomainName.parse(name);
+        return domain != null && insert(domain);
+    }
+    
+    public boolean add(DomainName domain) {
+        return insert(domain);
+    }
+    
+    // Not overridable, so the constructor can fill the trie through it
+    private boolean insert(DomainName domain) {
+        Node node = root;
+        for (int i = domain.labelCount() - 1; i > 0; i--) {
+            node = node.childZone(domain.labelBytes(i), this);
+        }
+        if (node.addLeaf(domain.labelBytes(0))) {
+            size.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        DomainName domain = DomainName.parse((String) o);
+        if (domain == null) {
+            return false;
+        }
+        
+        Node node = root;
+        for (int i = domain.labelCount() - 1; i > 0; i--) {
+            Object child = node.find(domain.labelBytes(i));
+            if (!(child instanceof Node)) {
+                return false;
+            }
+            node = (Node) child;
+        }
+        Object entry = node.find(domain.labelBytes(0));
+        return entry instanceof byte[] || (entry instanceof Node && ((Node) entry).isTerminal());
+    }
+    
+    // A name that also has names below it stays as a zone and only stops counting as a name itself
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        DomainName domain = DomainName.parse((String) o);
+        if (domain == null) {
+            return false;
+        }
+        
+        Node node = root;
+        for (int i = domain.labelCount() - 1; i > 0; i--) {
+            Object child = node.find(domain.labelBytes(i));
+            if (!(child instanceof Node)) {
+                return false;
+            }
+            node = (Node) child;
+        }
+        if (node.removeLeaf(domain.labelBytes(0))) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+    
+    @Override
+    public int size() {
+        return size.get();
+    }
+    
+    @Override
+    public void clear() {
+        for (int i = 0; i < root.stripes.length(); i++) {
+            root.stripes.set(i, null);
+        }
+        size.set(0);
+    }
+    
+    @Override
+    public Iterator<String> iterator() {
+        return new TrieIterator(this, root, "");
+    }
+    
+    // Every stored name equal to or below the zone, in canonical order
+    public Iterable<String> namesUnder(String zone) {
+        DomainName domain = DomainName.parse(zone);
+        if (domain == null) {
+            return Collections.emptyList();
+        }
+        
+        Node node = root;
+        for (int i = domain.labelCount() - 1; i >= 0; i--) {
+            Object child = node.find(domain.labelBytes(i));
+            if (child == null) {
+                return Collections.emptyList();
+            }
+            if (child instanceof byte[]) {
+                return i == 0 ? Collections.singletonList(domain.toString()) : Collections.emptyList();
+            }
+            node = (Node) child;
+        }
+        
+        Node zoneNode = node;
+        String zoneName = domain.toString();
+        return () -> new TrieIterator(this, zoneNode, zoneName);
+    }
+    
+    public int countUnder(String zone) {
+        int count = 0;
+        for (String ignored : namesUnder(zone)) {
+            count++;
+        }
+        return count;
+    }
+    
+    private byte[] internZoneLabel(byte[] label) {
+        return zoneLabels.computeIfAbsent(new String(label, StandardCharsets.ISO_8859_1), key -> label);
+    }
+    
+    private static byte[] labelOf(Object entry) {
+        return entry instanceof Node ? ((Node) entry).label : (byte[]) entry;
+    }
+    
+    private static final class Node {
+        final byte[] label;
+        // Created on first use, so a zone with a handful of names only pays for the stripes it uses
+        final AtomicReferenceArray<Stripe> stripes = new AtomicReferenceArray<>(1 << STRIPE_BITS);
+        volatile boolean terminal;
+        
+        Node(byte[] label) {
+            this.label = label;
+        }
+        
+        boolean isTerminal() {
+            return terminal;
+        }
+        
+        synchronized boolean markTerminal() {
+            if (terminal) {
+                return false;
+            }
+            terminal = true;
+            return true;
+        }
+        
+        synchronized boolean unmarkTerminal() {
+            if (!terminal) {
+                return false;
+            }
+            terminal = false;
+            return true;
+        }
+        
+        Object find(byte[] childLabel) {
+            int hash = hash(childLabel);
+            Stripe stripe = stripes.get(hash >>> (32 - STRIPE_BITS));
+            if (stripe == null) {
+                return null;
+            }
+            synchronized (stripe) {
+                return stripe.slots[indexOf(stripe.slots, childLabel, hash)];
+            }
+        }
+        
+        Node childZone(byte[] childLabel, SubdomainStore store) {
+            int hash = hash(childLabel);
+            Stripe stripe = stripeFor(hash);
+            synchronized (stripe) {
+                stripe.ensureCapacity();
+                int slot = indexOf(stripe.slots, childLabel, hash);
+                Object entry = stripe.slots[slot];
+                if (entry instanceof Node) {
+                    return (Node) entry;
+                }
+                
+                Node child = new Node(store.internZoneLabel(childLabel));
+                if (entry != null) {
+                    // A leaf that turns out to have children of its own keeps its name
+                    child.terminal = true;
+                } else {
+                    stripe.count++;
+                }
+                stripe.slots[slot] = child;
+                return child;
+            }
+        }
+        
+        boolean addLeaf(byte[] childLabel) {
+            int hash = hash(childLabel);
+            Stripe stripe = stripeFor(hash);
+            Object entry;
+            synchronized (stripe) {
+                stripe.ensureCapacity();
+                int slot = indexOf(stripe.slots, childLabel, hash);
+                entry = stripe.slots[slot];
+                if (entry == null) {
+                    stripe.slots[slot] = childLabel;
+                    stripe.count++;
+                    return true;
+                }
+            }
+            if (entry instanceof Node) {
+                return ((Node) entry).markTerminal();
+            }
+            return false;
+        }
+        
+        boolean removeLeaf(byte[] childLabel) {
+            int hash = hash(childLabel);
+            Stripe stripe = stripes.get(hash >>> (32 - STRIPE_BITS));
+            if (stripe == null) {
+                return false;
+            }
+            Object entry;
+            synchronized (stripe) {
+                int slot = indexOf(stripe.slots, childLabel, hash);
+                entry = stripe.slots[slot];
+                if (entry instanceof byte[]) {
+                    stripe.delete(slot);
+                    return true;
+                }
+            }
+            // The zone node itself stays, its children may still be names
+            return entry instanceof Node && ((Node) entry).unmarkTerminal();
+        }
+        
+        Snapshot snapshot(String name) {
+            List<Object> children = new ArrayList<>();
+            for (int i = 0; i < stripes.length(); i++) {
+                Stripe stripe = stripes.get(i);
+                if (stripe == null) {
+                    continue;
+                }
+                synchronized (stripe) {
+                    for (Object entry : stripe.slots) {
+                        if (entry != null) {
+                            children.add(entry);
+                        }
+                    }
+                }
+            }
+            Object[] sorted = children.toArray();
+            Arrays.sort(sorted, (a, b) -> Arrays.compare(labelOf(a), labelOf(b)));
+            return new Snapshot(sorted, name);
+        }
+        
+        private Stripe stripeFor(int hash) {
+            int index = hash >>> (32 - STRIPE_BITS);
+            Stripe stripe = stripes.get(index);
+            if (stripe == null) {
+                stripes.compareAndSet(index, null, new Stripe());
+                stripe = stripes.get(index);
+            }
+            return stripe;
+        }
+        
+        // The top bits pick the stripe, the low bits the slot within it
+        private static int hash(byte[] childLabel) {
+            int hash = Arrays.hashCode(childLabel) * 0x9E3779B9;
+            return hash ^ (hash >>> 16 & 0xFFF);
+        }
+        
+        private static int indexOf(Object[] table, byte[] childLabel, int hash) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != null && !Arrays.equals(labelOf(table[slot]), childLabel)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+    
+    // Open-addressed table whose entries are child Nodes or, for leaves, bare labels; guarded by its own monitor
+    private static final class Stripe {
+        Object[] slots = new Object[INITIAL_SLOTS];
+        int count;
+        
+        void ensureCapacity() {
+            if ((count + 1) * 4 > slots.length * 3) {
+                Object[] grown = new Object[slots.length * 2];
+                for (Object entry : slots) {
+                    if (entry != null) {
+                        byte[] entryLabel = labelOf(entry);
+                        grown[Node.indexOf(grown, entryLabel, Node.hash(entryLabel))] = entry;
+                    }
+                }
+                slots = grown;
+            }
+        }
+        
+        // Linear probing cannot leave a hole in a run, so the rest of the run is placed again
+        void delete(int slot) {
+            int mask = slots.length - 1;
+            slots[slot] = null;
+            count--;
+            for (int next = (slot + 1) & mask; slots[next] != null; next = (next + 1) & mask) {
+                Object entry = slots[next];
+                slots[next] = null;
+                byte[] entryLabel = labelOf(entry);
+                slots[Node.indexOf(slots, entryLabel, Node.hash(entryLabel))] = entry;
+            }
+        }
+    }
+    
+    private static final class Snapshot {
+        final Object[] children;
+        final String suffix;
+        int index;
+        
+        Snapshot(Object[] children, String suffix) {
+            this.children = children;
+            this.suffix = suffix;
+        }
+    }
+    
+    // Depth-first, parents before their children, children in label order
+    private static final class TrieIterator implements Iterator<String> {
+        private final SubdomainStore store;
+        private final Deque<Snapshot> stack = new ArrayDeque<>();
+        private String next;
+        private String last;
+        
+        TrieIterator(SubdomainStore store, Node start, String name) {
+            this.store = store;
+            stack.push(start.snapshot(name));
+            if (!name.isEmpty() && start.isTerminal()) {
+                next = name;
+            } else {
+                next = advance();
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+        
+        @Override
+        public String next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = advance();
+            return last;
+        }
+        
+        // Works on the store, not the snapshot being walked, so it is safe at any point
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            store.remove(last);
+            last = null;
+        }
+        
+        private String advance() {
+            while (!stack.isEmpty()) {
+                Snapshot frame = stack.peek();
+                if (frame.index >= frame.children.length) {
+                    stack.pop();
+                    continue;
+                }
+                
+                Object entry = frame.children[frame.index++];
+                String label = new String(labelOf(entry), StandardCharsets.ISO_8859_1);
+                String name = frame.suffix.isEmpty() ? label : label + "." + frame.suffix;
+                if (entry instanceof byte[]) {
+                    return name;
+                }
+                
+                Node child = (Node) entry;
+                stack.push(child.snapshot(name));
+                if (child.isTerminal()) {
+                    return name;
+                }
+            }
+            return null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+public class WildcardDetector {
+    private static final String LABEL_CHARS = "abcdefghijklmnopqrstuvwxyz0123456789";
+    
+    private final DnsResolver resolver;
+    private final int httpTimeout;
+    private final Random random = new Random();
+    private final Map<String, CompletableFuture<ZoneWildcard>> zones = new ConcurrentHashMap<>();
+    private int probesPerZone = 3;
+    private boolean verifyFingerprint = true;
+    private int fingerprintThreads = 32;
+    
+    public WildcardDetector(DnsResolver resolver, int httpTimeout) {
+        this.resolver = resolver;
+        this.httpTimeout = httpTimeout;
+    }
+    
+    public Set<String> filter(Collection<String> subdomains, Map<String, DnsResult> dnsResults) {
+        Map<String, List<String>> byZone = new HashMap<>();
+        for (String subdomain : subdomains) {
+            String zone = parentZone(subdomain);
+            if (zone != null) {
+                byZone.computeIfAbsent(zone, z -> new ArrayList<>()).add(subdomain);
+            }
+        }
+        
+        System.out.printf("Checking %d parent zones for wildcard DNS...\n", byZone.size());
+        ExecutorService executor = Executors.newFixedThreadPool(fingerprintThreads);
+        Set<String> discarded = ConcurrentHashMap.newKeySet();
+        
+        try {
+            List<Future<?>> detections = new ArrayList<>();
+            for (String zone : byZone.keySet()) {
+                detections.add(executor.submit(() -> detectZone(zone)));
+            }
+            waitAll(detections);
+            
+            List<Future<?>> checks = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : byZone.entrySet()) {
+                ZoneWildcard wildcard = detectZone(entry.getKey());
+                if (wildcard == null) {
+                    continue;
+                }
+                for (String subdomain : entry.getValue()) {
+                    DnsResult dns = dnsResults.get(subdomain);
+                    if (dns == null || !wildcard.coversAddresses(dns)) {
+                        continue;
+                    }
+                    checks.add(executor.submit(() -> {
+                        if (matchesWildcard(subdomain, wildcard)) {
+                            discarded.add(subdomain);
+                        }
+                    }));
+                }
+            }
+            waitAll(checks);
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        Set<String> remaining = new HashSet<>(subdomains);
+        remaining.removeAll(discarded);
+        
+        List<String> wildcardZones = getWildcardZones();
+        if (!wildcardZones.isEmpty()) {
+            System.out.println("Wildcard zones: " + String.join(", ", wildcardZones));
+        }
+        System.out.printf("Wildcard filter discarded %d of %d names\n", discarded.size(), subdomains.size());
+        return remaining;
+    }
+    
+    // Resolves a few random labels under the zone once and caches the outcome
+    public ZoneWildcard detectZone(String zone) {
+        CompletableFuture<ZoneWildcard> detection = new CompletableFuture<>();
+        CompletableFuture<ZoneWildcard> existing = zones.putIfAbsent(zone, detection);
+        if (existing != null) {
+            return existing.join();
+        }
+        
+        try {
+            detection.complete(probeZone(zone));
+        } catch (RuntimeException e) {
+            detection.complete(null);
+        }
+        return detection.join();
+    }
+    
+    public boolean matchesWildcard(String subdomain, DnsResult dns) {
+        String zone = parentZone(subdomain);
+        ZoneWildcard wildcard = zone != null ? detectZone(zone) : null;
+        return wildcard != null && wildcard.coversAddresses(dns) && matchesWildcard(subdomain, wildcard);
+    }
+    
+    private boolean matchesWildcard(String subdomain, ZoneWildcard wildcard) {
+        if (wildcard.fingerprint == null) {
+            return true;
+        }
+        return wildcard.fingerprint.isSimilarTo(ResponseFingerprint.fetch(subdomain, httpTimeout));
+    }
+    
+    private ZoneWildcard probeZone(String zone) {
+        List<CompletableFuture<DnsResult>> probes = new ArrayList<>();
+        for (int i = 0; i < probesPerZone; i++) {
+            probes.add(resolver.resolve(randomLabel() + "." + zone));
+        }
+        
+        Set<String> addresses = new HashSet<>();
+        String sampleHost = null;
+        for (CompletableFuture<DnsResult> probe : probes) {
+            DnsResult result = probe.join();
+            if (result.isResolved()) {
+                addresses.addAll(result.getAddresses());
+                sampleHost = result.getName();
+            }
+        }
+        if (addresses.isEmpty()) {
+            return null;
+        }
+        
+        ResponseFingerprint fingerprint = verifyFingerprint ? ResponseFingerprint.fetch(sampleHost, httpTimeout) : null;
+        return new ZoneWildcard(zone, addresses, fingerprint);
+    }
+    
+    private String randomLabel() {
+        StringBuilder label = new StringBuilder("smx");
+        synchronized (random) {
+            for (int i = 0; i < 12; i++) {
+                label.append(LABEL_CHARS.charAt(random.nextInt(LABEL_CHARS.length())));
+            }
+        }
+        return label.toString();
+    }
+    
+    // The zone a wildcard record would have to live in to answer for this name
+    static String parentZone(String subdomain) {
+        int dot = subdomain.indexOf('.');
+        if (dot < 0 || subdomain.indexOf('.', dot + 1) < 0) {
+            return null;
+        }
+        return subdomain.substring(dot + 1);
+    }
+    
+    private void waitAll(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("Error during wildcard detection: " + e.getCause().getMessage());
+            }
+        }
+    }
+    
+    public List<String> getWildcardZones() {
+        List<String> wildcardZones = new ArrayList<>();
+        zones.forEach((zone, detection) -> {
+            if (detection.isDone() && detection.join() != null) {
+                wildcardZones.add(zone);
+            }
+        });
+        Collections.sort(wildcardZones);
+        return wildcardZones;
+    }
+    
+    public void setVerifyFingerprint(boolean verifyFingerprint) {
+        this.verifyFingerprint = verifyFingerprint;
+    }
+    
+    public void setProbesPerZone(int probesPerZone) {
+        this.probesPerZone = probesPerZone;
+    }
+    
+    public static class ZoneWildcard {
+        final String zone;
+        final Set<String> addresses;
+        final ResponseFingerprint fingerprint;
+        
+        ZoneWildcard(String zone, Set<String> addresses, ResponseFingerprint fingerprint) {
+            this.zone = zone;
+            this.addresses = addresses;
+            this.fingerprint = fingerprint;
+        }
+        
+        boolean coversAddresses(DnsResult dns) {
+            return dns.isResolved() && addresses.containsAll(dns.getAddresses());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+import java.util.*;
+
+// Runs ProcessSupervisor against the stub tools in this directory; see run.sh
+public class ProcessSupervisorCheck {
+    private final String dir;
+    private final ProcessSupervisor supervisor = new ProcessSupervisor();
+    private ProcessSupervisor.Result result;
+    private int failures = 0;
+    
+    private ProcessSupervisorCheck(String dir) {
+        this.dir = dir;
+    }
+    
+    public static void main(String[] args) {
+        ProcessSupervisorCheck check = new ProcessSupervisorCheck(args[0]);
+        check.run();
+        System.out.println(check.failures == 0 ? "All checks passed" : check.failures + " check(s) failed");
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+    
+    private void run() {
+        // A tool that floods stderr must not stall on the full pipe before it reaches stdout
+        List<String> lines = stdout("chatty-stderr.sh", 10000, null);
+        check("chatty stderr does not stall", result.isSuccess() && lines.equals(List.of("done"))
+              && result.getStderrBytes() == 4194304 && result.getWallSeconds() < 5,
+              String.format("exit %d, %d stderr bytes, %.1fs", result.getExitCode(), result.getStderrBytes(),
+                            result.getWallSeconds()));
+        
+        // A tool still writing at its deadline is killed, and the run returns within the grace period
+        lines = stdout("writes-past-deadline.sh", 1000, null);
+        check("tool writing past its deadline is killed",
+              result.isTimedOut() && !lines.isEmpty() && gone(lines.get(0)) && result.getWallSeconds() < 4,
+              String.format("timed out %b, %d lines, %.1fs", result.isTimedOut(), lines.size(),
+                            result.getWallSeconds()));
+        
+        // Background children are reaped, the one holding stdout open and the one that let go of it
+        lines = stdout("background-child.sh", 1500, null);
+        check("background children are reaped",
+              lines.size() == 2 && gone(lines.get(0)) && gone(lines.get(1)) && result.getWallSeconds() < 5,
+              String.format("children %s, %.1fs", lines, result.getWallSeconds()));
+        
+        // Bytes fed to stdin are counted encoded, not as characters
+        lines = stdout("count-stdin.sh", 10000, List.of("b\u00fccher.example.com", "\u4f8b\u3048.jp").iterator());
+        check("stdin bytes are counted encoded", result.getStdinBytes() == 30 && lines.equals(List.of("30")),
+              String.format("counted %d, tool read %s", result.getStdinBytes(), lines));
+    }
+    
+    private List<String> stdout(String stub, long timeoutMillis, Iterator<String> input) {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        result = supervisor.run(stub, new ProcessBuilder(dir + "/" + stub), timeoutMillis, input, lines::add, null);
+        return lines;
+    }
+    
+    // A killed process takes a moment to be reaped
+    private static boolean gone(String pid) {
+        long until = System.currentTimeMillis() + 2000;
+        while (ProcessHandle.of(Long.parseLong(pid)).map(ProcessHandle::isAlive).orElse(false)) {
+            if (System.currentTimeMillis() > until) {
+                return false;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void check(String name, boolean passed, String detail) {
+        System.out.printf("%s %s (%s)\n", passed ? "PASS" : "FAIL", name, detail);
+        if (!passed) {
+            failures++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+#!/usr/bin/env bash
+# Exits at once, leaving a child that holds stdout open and one that has let go of it
+sleep 300 &
+echo $!
+sleep 300 > /dev/null 2>&1 < /dev/null &
+echo $!
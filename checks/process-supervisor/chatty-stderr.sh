@@ -0,0 +1,4 @@
+#!/usr/bin/env bash
+# Writes 4 MiB to stderr, far more than a pipe holds, before its only line of stdout
+yes "$(printf 'e%.0s' {1..1023})" | head -c 4194304 >&2
+echo done
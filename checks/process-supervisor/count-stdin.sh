@@ -0,0 +1,3 @@
+#!/usr/bin/env bash
+# Prints how many bytes arrived on stdin
+wc -c | tr -d ' '
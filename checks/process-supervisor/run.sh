@@ -0,0 +1,8 @@
+#!/usr/bin/env bash
+# Compiles the tree and runs the ProcessSupervisor checks against the stub tools in this directory
+set -e
+here="$(cd "$(dirname "$0")" && pwd)"
+out="$(mktemp -d)"
+trap 'rm -rf "$out"' EXIT
+javac -encoding UTF-8 -d "$out" "$here"/../../*.java
+java --class-path "$out" "$here/ProcessSupervisorCheck.java" "$here"
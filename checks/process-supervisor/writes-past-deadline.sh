@@ -0,0 +1,7 @@
+#!/usr/bin/env bash
+# Never exits on its own and keeps writing until it is killed
+echo $$
+while true; do
+    echo tick
+    sleep 0.1
+done
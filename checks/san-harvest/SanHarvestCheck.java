@@ -0,0 +1,85 @@
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+import java.util.*;
+import javax.net.ssl.*;
+
+// Serves a self-signed certificate whose names do not match the address it is reached on, and
+// checks that the names are harvested although every request fails validation; see run.sh
+public class SanHarvestCheck {
+    private static final Set<String> EXPECTED = Set.of("api.example.com", "admin.example.com", "dev.example.com");
+    
+    private int failures = 0;
+    
+    public static void main(String[] args) throws Exception {
+        SSLServerSocket server = (SSLServerSocket) SSLServerSocketFactory.getDefault()
+            .createServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(() -> serve(server));
+        acceptor.setDaemon(true);
+        acceptor.start();
+        String url = "https://127.0.0.1:" + server.getLocalPort() + "/";
+        
+        SanHarvestCheck check = new SanHarvestCheck();
+        check.viaUrlConnection(url);
+        check.viaHttpClient(url);
+        System.out.println(check.failures == 0 ? "All checks passed" : check.failures + " check(s) failed");
+        System.exit(check.failures == 0 ? 0 : 1);
+    }
+    
+    private void viaUrlConnection(String url) {
+        SanHarvester harvester = new SanHarvester("example.com", List.of());
+        boolean rejected = false;
+        try {
+            HttpsURLConnection connection = (HttpsURLConnection) URI.create(url).toURL().openConnection();
+            connection.setSSLSocketFactory(SanHarvester.reportingContext(harvester::harvest).getSocketFactory());
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(5000);
+            connection.getResponseCode();
+        } catch (SSLException e) {
+            rejected = true;
+        } catch (IOException e) {
+            // Counted as not rejected
+        }
+        check("HttpsURLConnection", rejected, harvester.getHarvested());
+    }
+    
+    private void viaHttpClient(String url) throws InterruptedException {
+        SanHarvester harvester = new SanHarvester("example.com", List.of());
+        HttpClient client = HttpClient.newBuilder()
+            .sslContext(SanHarvester.reportingContext(harvester::harvest))
+            .build();
+        boolean rejected = false;
+        try {
+            client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.discarding());
+        } catch (SSLException e) {
+            rejected = true;
+        } catch (IOException e) {
+            // Counted as not rejected
+        }
+        check("HttpClient", rejected, harvester.getHarvested());
+    }
+    
+    private void check(String name, boolean rejected, Set<String> harvested) {
+        boolean passed = rejected && harvested.equals(EXPECTED);
+        System.out.printf("%s %s (rejected %b, harvested %s)\n", passed ? "PASS" : "FAIL", name, rejected,
+                          new TreeSet<>(harvested));
+        if (!passed) {
+            failures++;
+        }
+    }
+    
+    private static void serve(SSLServerSocket server) {
+        while (true) {
+            try (Socket socket = server.accept()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                String line;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                    // Only reached when the handshake succeeded, which it must not
+                }
+                socket.getOutputStream().write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n".getBytes());
+            } catch (IOException e) {
+                // The client rejected the certificate
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Compiles the tree and checks that certificate names are harvested from a server that fails validation
+set -e
+here="$(cd "$(dirname "$0")" && pwd)"
+out="$(mktemp -d)"
+trap 'rm -rf "$out"' EXIT
+javac -encoding UTF-8 -d "$out" "$here"/../../*.java
+# Self-signed, with names that cover neither 127.0.0.1 nor each other
+keytool -genkeypair -keystore "$out/server.p12" -storetype PKCS12 -storepass changeit -keypass changeit \
+    -alias server -keyalg RSA -dname "CN=wrong.other.org" -validity 1 \
+    -ext "SAN=dns:api.example.com,dns:admin.example.com,dns:*.dev.example.com,dns:outside.org" 2> /dev/null
+java -Djavax.net.ssl.keyStore="$out/server.p12" -Djavax.net.ssl.keyStorePassword=changeit \
+    --class-path "$out" "$here/SanHarvestCheck.java"